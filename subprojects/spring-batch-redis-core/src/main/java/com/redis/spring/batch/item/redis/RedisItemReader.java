@@ -1,36 +1,71 @@
 package com.redis.spring.batch.item.redis;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
 import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.support.IteratorItemReader;
 import org.springframework.retry.policy.MaxAttemptsRetryPolicy;
 import org.springframework.util.Assert;
 
 import com.redis.lettucemod.api.StatefulRedisModulesConnection;
 import com.redis.spring.batch.item.AbstractAsyncItemReader;
+import com.redis.spring.batch.item.AbstractPollableItemReader;
 import com.redis.spring.batch.item.redis.common.BatchUtils;
+import com.redis.spring.batch.item.redis.common.KeyValue;
 import com.redis.spring.batch.item.redis.common.Operation;
 import com.redis.spring.batch.item.redis.common.OperationExecutor;
+import com.redis.spring.batch.item.redis.reader.AppendTracker;
+import com.redis.spring.batch.item.redis.reader.DatabaseScanItemReader;
+import com.redis.spring.batch.item.redis.reader.KeyEvent;
+import com.redis.spring.batch.item.redis.reader.KeyEventItemProcessor;
+import com.redis.spring.batch.item.redis.reader.KeyJournal;
 import com.redis.spring.batch.item.redis.reader.KeyNotificationItemReader;
+import com.redis.spring.batch.item.redis.reader.KeyValueSizeEstimator;
+import com.redis.spring.batch.item.redis.reader.KeyValueSpillCodec;
 import com.redis.spring.batch.item.redis.reader.MemKeyValue;
 import com.redis.spring.batch.item.redis.reader.MemKeyValueRead;
+import com.redis.spring.batch.item.redis.reader.MemKeyValueRead.ValueType;
+import com.redis.spring.batch.item.redis.reader.ReplicationItemReader;
+import com.redis.spring.batch.item.redis.reader.ScanNotificationItemReader;
+import com.redis.spring.batch.item.redis.reader.Wrapper;
 
 import io.lettuce.core.AbstractRedisClient;
 import io.lettuce.core.KeyScanArgs;
 import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisURI;
 import io.lettuce.core.ScanIterator;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
 
-public class RedisItemReader<K, V, T> extends AbstractAsyncItemReader<K, T> {
+public class RedisItemReader<K, V, T> extends AbstractAsyncItemReader<KeyEvent<K>, T>
+		implements ItemProcessListener<T, Object>, ItemWriteListener<T> {
 
 	public static final int DEFAULT_POOL_SIZE = OperationExecutor.DEFAULT_POOL_SIZE;
 	public static final int DEFAULT_NOTIFICATION_QUEUE_CAPACITY = KeyNotificationItemReader.DEFAULT_QUEUE_CAPACITY;
 	public static final int DEFAULT_RETRY_LIMIT = MaxAttemptsRetryPolicy.DEFAULT_MAX_ATTEMPTS;
+	public static final Duration DEFAULT_COALESCING_WINDOW = KeyNotificationItemReader.DEFAULT_COALESCING_WINDOW;
+	public static final int ALL_DATABASES = KeyNotificationItemReader.ALL_DATABASES;
+	public static final int DEFAULT_INCREMENTAL_CAPACITY = AppendTracker.DEFAULT_CAPACITY;
 
 	private final RedisCodec<K, V> codec;
 	private final Operation<K, V, K, T> operation;
@@ -42,11 +77,24 @@ public class RedisItemReader<K, V, T> extends AbstractAsyncItemReader<K, T> {
 	private String keyType;
 	private long scanCount;
 	private int database;
+	private Duration coalescingWindow = DEFAULT_COALESCING_WINDOW;
+	private boolean incremental;
+	private int incrementalCapacity = DEFAULT_INCREMENTAL_CAPACITY;
+	private boolean snapshot;
+	private RedisURI replicationUri;
+	private Path journalDirectory;
+
+	private KeyNotificationItemReader<K, V> journaledReader;
+	private volatile AppendTracker<K> appendTracker;
+	private volatile long writtenPosition = -1;
 
 	private AbstractRedisClient client;
 
 	public RedisItemReader(RedisCodec<K, V> codec, Operation<K, V, K, T> operation) {
 		setRetryLimit(DEFAULT_RETRY_LIMIT);
+		setItemSizeFunction(KeyValueSizeEstimator::estimate);
+		setSpillCodec(new KeyValueSpillCodec<>());
+		setPartitionFunction(event -> new Wrapper<>(event.getKey()).hashCode());
 		this.codec = codec;
 		this.operation = operation;
 	}
@@ -56,34 +104,198 @@ public class RedisItemReader<K, V, T> extends AbstractAsyncItemReader<K, T> {
 	}
 
 	@Override
-	protected FaultTolerantStepBuilder<K, K> faultTolerant(SimpleStepBuilder<K, K> step) {
-		FaultTolerantStepBuilder<K, K> ftStep = super.faultTolerant(step);
+	protected FaultTolerantStepBuilder<KeyEvent<K>, KeyEvent<K>> faultTolerant(
+			SimpleStepBuilder<KeyEvent<K>, KeyEvent<K>> step) {
+		FaultTolerantStepBuilder<KeyEvent<K>, KeyEvent<K>> ftStep = super.faultTolerant(step);
 		ftStep.skip(RedisCommandExecutionException.class);
 		ftStep.noRetry(RedisCommandExecutionException.class);
 		ftStep.noSkip(RedisCommandTimeoutException.class);
 		ftStep.retry(RedisCommandTimeoutException.class);
+		if (appendTracker != null) {
+			AppendTracker<K> tracker = appendTracker;
+			ftStep.listener(new ItemWriteListener<KeyEvent<K>>() {
+
+				@Override
+				public void onWriteError(Exception exception, Chunk<? extends KeyEvent<K>> items) {
+					// Entries read from tracked positions may not have been written
+					items.forEach(item -> tracker.discard(item.getKey()));
+				}
+
+			});
+		}
+		if (journaledReader != null) {
+			KeyNotificationItemReader<K, V> notificationReader = journaledReader;
+			ftStep.listener(new ChunkListener() {
+
+				@Override
+				public void afterChunk(ChunkContext context) {
+					// Keys polled before the drained position are now in the queue
+					writtenPosition = notificationReader.getDrainedPosition();
+				}
+
+			});
+		}
 		return ftStep;
 	}
 
+	/**
+	 * Builds a replication step reading keys, fetching their values and writing
+	 * them with the given writer within the same chunk, e.g. with a
+	 * {@link RedisItemWriter} targeting another database.
+	 */
 	@Override
-	protected ItemReader<K> reader() {
+	public synchronized Step fusedStep(ItemWriter<? super T> writer) throws Exception {
+		Assert.isNull(journalDirectory, getName() + ": Journal is not supported with a fused step");
+		return super.fusedStep(writer);
+	}
+
+	/**
+	 * Commits the journal position before which all keys were queued once they
+	 * were also read from the queue, which means they were written by the step
+	 * using this reader. With a spill directory the queue is only empty once
+	 * spilled key/values were read too, so the spill files deleted on close
+	 * never hold values of a committed position: those keys are replayed from
+	 * the journal on the next open.
+	 */
+	@Override
+	public void update(ExecutionContext executionContext) {
+		super.update(executionContext);
+		long position = writtenPosition;
+		if (journaledReader != null && position >= 0 && queue != null && queue.isEmpty()) {
+			journaledReader.commit(position);
+		}
+	}
+
+	@Override
+	protected synchronized void doClose() throws TimeoutException, InterruptedException {
+		super.doClose();
+		if (journaledReader != null) {
+			try {
+				journaledReader.getJournal().close();
+			} catch (IOException e) {
+				throw new ItemStreamException("Could not close journal", e);
+			}
+			journaledReader = null;
+			writtenPosition = -1;
+		}
+	}
+
+	/**
+	 * Discards the read position of key/values filtered by the step consuming
+	 * this reader, as their entries are not written.
+	 */
+	@Override
+	public void afterProcess(T item, Object result) {
+		if (result == null) {
+			discardPosition(item);
+		}
+	}
+
+	@Override
+	public void onProcessError(T item, Exception e) {
+		discardPosition(item);
+	}
+
+	/**
+	 * Discards the read position of key/values whose write by the step consuming
+	 * this reader failed, so that the next read of their keys is a full read
+	 * instead of appending entries after the ones that were lost.
+	 */
+	@Override
+	public void onWriteError(Exception exception, Chunk<? extends T> items) {
+		for (Object item : items) {
+			discardPosition(item);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void discardPosition(Object item) {
+		AppendTracker<K> tracker = appendTracker;
+		if (tracker != null && item instanceof KeyValue) {
+			tracker.discard(((KeyValue<K, ?>) item).getKey());
+		}
+	}
+
+	@Override
+	protected ItemReader<KeyEvent<K>> reader() {
+		if (database == ALL_DATABASES) {
+			Assert.isTrue(!snapshot, getName() + ": Snapshot is not supported with all databases");
+			Assert.isTrue(!incremental, getName() + ": Incremental reads are not supported with all databases");
+			Assert.isNull(replicationUri, getName() + ": Replication is not supported with all databases");
+			Assert.isNull(journalDirectory, getName() + ": Journal is not supported with all databases");
+			if (!isFlushing()) {
+				DatabaseScanItemReader<K, V> scanReader = new DatabaseScanItemReader<>(client, codec,
+						BatchUtils.databaseCount(client));
+				scanReader.setScanArgs(scanArgs());
+				scanReader.setReadFrom(readFrom);
+				return scanReader;
+			}
+		}
 		if (isFlushing()) {
-			KeyNotificationItemReader<K, V> notificationReader = new KeyNotificationItemReader<>(client, codec);
-			notificationReader.setName(getName() + "-key-notification-reader");
-			notificationReader.setQueueCapacity(notificationQueueCapacity);
-			notificationReader.setDatabase(database);
-			notificationReader.setKeyPattern(keyPattern);
-			notificationReader.setKeyType(keyType);
+			AbstractPollableItemReader<KeyEvent<K>> notificationReader = liveReader();
 			notificationReader.setPollTimeout(pollTimeout);
+			if (snapshot) {
+				ScanNotificationItemReader<K, V> scanReader = new ScanNotificationItemReader<>(client, codec,
+						notificationReader);
+				scanReader.setName(getName() + "-scan-notification-reader");
+				scanReader.setScanArgs(scanArgs());
+				scanReader.setReadFrom(readFrom);
+				scanReader.setPollTimeout(pollTimeout);
+				return scanReader;
+			}
 			return notificationReader;
 		}
 		ScanIterator<K> scanIterator = ScanIterator.scan(connection().sync(), scanArgs());
-		return new IteratorItemReader<>(scanIterator);
+		return new IteratorItemReader<>(scanIterator.stream().map(k -> new KeyEvent<>(k, null)).iterator());
 	}
 
+	private AbstractPollableItemReader<KeyEvent<K>> liveReader() {
+		if (replicationUri != null) {
+			Assert.isNull(keyType, getName() + ": Key type filter is not supported with replication");
+			ReplicationItemReader<K, V> replicationReader = new ReplicationItemReader<>(replicationUri, codec);
+			replicationReader.setName(getName() + "-replication-reader");
+			replicationReader.setQueueCapacity(notificationQueueCapacity);
+			replicationReader.setDatabase(database);
+			replicationReader.setKeyPattern(keyPattern);
+			replicationReader.setCoalescingWindow(coalescingWindow);
+			replicationReader.setClient(client);
+			if (client instanceof RedisClient) {
+				replicationReader.setSslOptions(((RedisClient) client).getOptions().getSslOptions());
+			}
+			return replicationReader;
+		}
+		KeyNotificationItemReader<K, V> notificationReader = new KeyNotificationItemReader<>(client, codec);
+		notificationReader.setName(getName() + "-key-notification-reader");
+		notificationReader.setQueueCapacity(notificationQueueCapacity);
+		notificationReader.setDatabase(database);
+		notificationReader.setKeyPattern(keyPattern);
+		notificationReader.setKeyType(keyType);
+		notificationReader.setCoalescingWindow(coalescingWindow);
+		if (journalDirectory != null) {
+			Assert.isTrue(getThreads() == 1, getName() + ": Journal requires a single thread");
+			notificationReader.setJournal(new KeyJournal(journalDirectory));
+			journaledReader = notificationReader;
+		}
+		return notificationReader;
+	}
+
+	@SuppressWarnings("unchecked")
 	@Override
-	protected OperationExecutor<K, V, K, T> writeProcessor() {
-		return operationExecutor();
+	protected ItemProcessor<Iterable<? extends KeyEvent<K>>, List<T>> writeProcessor() {
+		KeyEventItemProcessor<K, V, T> processor = new KeyEventItemProcessor<>(operationExecutor());
+		appendTracker = null;
+		if (operation instanceof MemKeyValueRead) {
+			// Deleted keys do not need to be read
+			MemKeyValueRead<K, V, ?> read = (MemKeyValueRead<K, V, ?>) operation;
+			processor.setMissingFunction(k -> (T) read.missing(k));
+			if (incremental && isFlushing() && read.getType() == ValueType.STRUCT) {
+				Assert.isTrue(getThreads() == 1, getName() + ": Incremental reads require a single thread");
+				appendTracker = new AppendTracker<>(incrementalCapacity);
+				read.setPositionFunction(appendTracker::position);
+				processor.setAppendTracker(appendTracker);
+			}
+		}
+		return processor;
 	}
 
 	public OperationExecutor<K, V, K, T> operationExecutor() {
@@ -145,6 +357,30 @@ public class RedisItemReader<K, V, T> extends AbstractAsyncItemReader<K, T> {
 		this.client = client;
 	}
 
+	/**
+	 * Key-level alternative to {@link #setProcessor(ItemProcessor)} for
+	 * processors written when the reader handed out keys rather than key events.
+	 * The event and database of each key are kept.
+	 * 
+	 * @param processor processor of the keys read, returning null to filter a key
+	 */
+	public void setKeyProcessor(ItemProcessor<K, K> processor) {
+		if (processor == null) {
+			setProcessor(null);
+			return;
+		}
+		setProcessor(event -> {
+			K key = processor.process(event.getKey());
+			if (key == null) {
+				return null;
+			}
+			if (key == event.getKey()) {
+				return event;
+			}
+			return new KeyEvent<>(key, event.getEvent(), event.getDatabase());
+		});
+	}
+
 	public int getPoolSize() {
 		return poolSize;
 	}
@@ -197,8 +433,104 @@ public class RedisItemReader<K, V, T> extends AbstractAsyncItemReader<K, T> {
 		return database;
 	}
 
+	/**
+	 * 
+	 * @param database index of the database to read keys from, or
+	 *                 {@link #ALL_DATABASES} to read keys of every database of a
+	 *                 standalone server. Key values then carry the index of their
+	 *                 database so that a writer can route them.
+	 */
 	public void setDatabase(int database) {
 		this.database = database;
 	}
 
+	public Duration getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	public void setCoalescingWindow(Duration window) {
+		this.coalescingWindow = window;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * 
+	 * @param incremental in live mode, read lists and streams that were only
+	 *                    appended to (rpush, xadd) from their last read
+	 *                    position instead of entirely. Only applies to struct
+	 *                    readers with a single thread. Positions are discarded
+	 *                    when the key/values read from them fail to be written
+	 *                    or are filtered, by this reader's step or, as this
+	 *                    reader registers itself as its listener, by the step
+	 *                    consuming it.
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	public int getIncrementalCapacity() {
+		return incrementalCapacity;
+	}
+
+	/**
+	 * 
+	 * @param capacity maximum number of keys whose read position is kept in
+	 *                 incremental mode. Keys whose position was discarded are
+	 *                 read entirely.
+	 */
+	public void setIncrementalCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, getName() + ": Incremental capacity must be strictly positive");
+		this.incrementalCapacity = capacity;
+	}
+
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * 
+	 * @param snapshot in live mode, also read existing keys with SCAN once
+	 *                 notifications are subscribed to. Keys already read because
+	 *                 of a notification are skipped by the scan.
+	 */
+	public void setSnapshot(boolean snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public RedisURI getReplicationUri() {
+		return replicationUri;
+	}
+
+	/**
+	 * 
+	 * @param uri in live mode, read changes from the replication stream of this
+	 *            standalone server instead of keyspace notifications. Keys are
+	 *            rescanned when a reconnection requires a full
+	 *            resynchronization. The replication offset is not persisted, so
+	 *            use {@link #setSnapshot(boolean)} to also read keys changed
+	 *            while the reader was stopped.
+	 */
+	public void setReplicationUri(RedisURI uri) {
+		this.replicationUri = uri;
+	}
+
+	public Path getJournalDirectory() {
+		return journalDirectory;
+	}
+
+	/**
+	 * 
+	 * @param directory in live mode, journal keyspace notifications to segment
+	 *                  files in this directory. Keys notified but not yet
+	 *                  replicated when the reader stops are read again when it
+	 *                  is next opened. Only applies to keyspace notifications
+	 *                  read with a single thread.
+	 */
+	public void setJournalDirectory(Path directory) {
+		this.journalDirectory = directory;
+	}
+
 }
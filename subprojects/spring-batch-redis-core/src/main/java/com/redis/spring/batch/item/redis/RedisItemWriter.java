@@ -1,6 +1,17 @@
 package com.redis.spring.batch.item.redis;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ExecutionContext;
@@ -10,7 +21,9 @@ import org.springframework.util.Assert;
 import com.redis.spring.batch.item.redis.common.KeyValue;
 import com.redis.spring.batch.item.redis.common.Operation;
 import com.redis.spring.batch.item.redis.common.OperationExecutor;
+import com.redis.spring.batch.item.redis.reader.Wrapper;
 import com.redis.spring.batch.item.redis.writer.KeyValueRestore;
+import com.redis.spring.batch.item.redis.writer.KeyValueScriptWrite;
 import com.redis.spring.batch.item.redis.writer.KeyValueWrite;
 import com.redis.spring.batch.item.redis.writer.KeyValueWrite.WriteMode;
 import com.redis.spring.batch.item.redis.writer.operation.MultiExec;
@@ -25,6 +38,8 @@ public class RedisItemWriter<K, V, T> implements ItemStreamWriter<T> {
 
 	public static final int DEFAULT_POOL_SIZE = OperationExecutor.DEFAULT_POOL_SIZE;
 	public static final Duration DEFAULT_WAIT_TIMEOUT = Duration.ofSeconds(1);
+	public static final int DEFAULT_KEY_PARTITIONS = 1;
+	private static final Duration PARTITION_CLOSE_TIMEOUT = Duration.ofSeconds(10);
 
 	private final RedisCodec<K, V> codec;
 	private final Operation<K, V, T, Object> operation;
@@ -34,8 +49,12 @@ public class RedisItemWriter<K, V, T> implements ItemStreamWriter<T> {
 	private Duration waitTimeout = DEFAULT_WAIT_TIMEOUT;
 	private boolean multiExec;
 	private int poolSize = DEFAULT_POOL_SIZE;
+	private int keyPartitions = DEFAULT_KEY_PARTITIONS;
+	private Function<T, K> keyFunction;
+	private ToIntFunction<T> databaseFunction;
 
 	private OperationExecutor<K, V, T, Object> operationExecutor;
+	private List<Partition<K, V, T>> partitions;
 
 	public RedisItemWriter(RedisCodec<K, V> codec, Operation<K, V, T, Object> operation) {
 		this.codec = codec;
@@ -51,7 +70,7 @@ public class RedisItemWriter<K, V, T> implements ItemStreamWriter<T> {
 	}
 
 	public static <K, V> RedisItemWriter<K, V, KeyValue<K, Object>> struct(RedisCodec<K, V> codec) {
-		return new RedisItemWriter<>(codec, new KeyValueWrite<>());
+		return keyValue(codec, new KeyValueWrite<>(codec));
 	}
 
 	public static RedisItemWriter<String, String, KeyValue<String, Object>> struct(WriteMode mode) {
@@ -59,35 +78,142 @@ public class RedisItemWriter<K, V, T> implements ItemStreamWriter<T> {
 	}
 
 	public static <K, V> RedisItemWriter<K, V, KeyValue<K, Object>> struct(RedisCodec<K, V> codec, WriteMode mode) {
-		return new RedisItemWriter<>(codec, KeyValueWrite.create(mode));
+		return keyValue(codec, KeyValueWrite.create(codec, mode));
 	}
 
 	public static RedisItemWriter<byte[], byte[], KeyValue<byte[], byte[]>> dump() {
-		return new RedisItemWriter<>(ByteArrayCodec.INSTANCE, new KeyValueRestore<>());
+		return keyValue(ByteArrayCodec.INSTANCE, new KeyValueRestore<>());
+	}
+
+	public static RedisItemWriter<String, String, KeyValue<String, Object>> structScript() {
+		return structScript(StringCodec.UTF8);
+	}
+
+	public static <K, V> RedisItemWriter<K, V, KeyValue<K, Object>> structScript(RedisCodec<K, V> codec) {
+		return keyValue(codec, KeyValueScriptWrite.struct(codec));
+	}
+
+	public static <K, V> RedisItemWriter<K, V, KeyValue<K, Object>> structScript(RedisCodec<K, V> codec,
+			WriteMode mode) {
+		return keyValue(codec, KeyValueScriptWrite.struct(codec, mode));
+	}
+
+	public static RedisItemWriter<byte[], byte[], KeyValue<byte[], byte[]>> dumpScript() {
+		return keyValue(ByteArrayCodec.INSTANCE, KeyValueScriptWrite.dump());
+	}
+
+	private static <K, V, T extends KeyValue<K, ?>> RedisItemWriter<K, V, T> keyValue(RedisCodec<K, V> codec,
+			Operation<K, V, T, Object> operation) {
+		RedisItemWriter<K, V, T> writer = new RedisItemWriter<>(codec, operation);
+		writer.setKeyFunction(KeyValue::getKey);
+		writer.setDatabaseFunction(KeyValue::getDatabase);
+		return writer;
 	}
 
 	@Override
 	public synchronized void open(ExecutionContext executionContext) {
 		Assert.notNull(client, "Redis client not set");
-		if (operationExecutor == null) {
-			operationExecutor = new OperationExecutor<>(codec, operation());
-			operationExecutor.setClient(client);
-			operationExecutor.setPoolSize(poolSize);
-			operationExecutor.open(executionContext);
+		if (keyPartitions > 1) {
+			Assert.notNull(keyFunction, "Key function must be set when using key partitions");
+			if (partitions == null) {
+				partitions = new ArrayList<>(keyPartitions);
+				for (int index = 0; index < keyPartitions; index++) {
+					partitions.add(new Partition<>(index, operationExecutor(1, executionContext), databaseFunction));
+				}
+			}
+		} else if (operationExecutor == null) {
+			operationExecutor = operationExecutor(poolSize, executionContext);
 		}
 	}
 
+	private OperationExecutor<K, V, T, Object> operationExecutor(int size, ExecutionContext executionContext) {
+		OperationExecutor<K, V, T, Object> executor = new OperationExecutor<>(codec, operation());
+		executor.setClient(client);
+		executor.setPoolSize(size);
+		executor.open(executionContext);
+		return executor;
+	}
+
 	@Override
 	public synchronized void close() {
 		if (operationExecutor != null) {
 			operationExecutor.close();
 			operationExecutor = null;
 		}
+		if (partitions != null) {
+			partitions.forEach(Partition::close);
+			partitions = null;
+		}
 	}
 
 	@Override
 	public void write(Chunk<? extends T> items) throws Exception {
-		operationExecutor.process(items);
+		if (partitions == null) {
+			write(operationExecutor, databaseFunction, items.getItems());
+		} else {
+			writePartitions(items);
+		}
+	}
+
+	/**
+	 * Writes items with connections to their respective databases, keeping the
+	 * order of items within each database.
+	 */
+	private static <T> void write(OperationExecutor<?, ?, T, Object> executor, ToIntFunction<T> databaseFunction,
+			List<? extends T> items) throws Exception {
+		if (databaseFunction == null || items.isEmpty()) {
+			executor.write(items);
+			return;
+		}
+		int database = databaseFunction.applyAsInt(items.get(0));
+		if (items.stream().allMatch(item -> databaseFunction.applyAsInt(item) == database)) {
+			executor.write(database, items);
+			return;
+		}
+		Map<Integer, List<T>> databaseItems = new LinkedHashMap<>();
+		for (T item : items) {
+			databaseItems.computeIfAbsent(databaseFunction.applyAsInt(item), db -> new ArrayList<>()).add(item);
+		}
+		for (Map.Entry<Integer, List<T>> entry : databaseItems.entrySet()) {
+			executor.write(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Splits items into partitions by key hash. Each partition writes its items
+	 * in order on its own thread and connection, so that distinct keys are
+	 * written in parallel while writes to the same key are applied one at a time
+	 * in the order they were submitted.
+	 */
+	private void writePartitions(Chunk<? extends T> items) throws Exception {
+		List<List<T>> partitionItems = new ArrayList<>(keyPartitions);
+		for (int index = 0; index < keyPartitions; index++) {
+			partitionItems.add(new ArrayList<>());
+		}
+		for (T item : items) {
+			int hash = new Wrapper<>(keyFunction.apply(item)).hashCode();
+			partitionItems.get(Math.floorMod(hash, keyPartitions)).add(item);
+		}
+		List<Future<?>> futures = new ArrayList<>(keyPartitions);
+		for (int index = 0; index < keyPartitions; index++) {
+			List<T> partition = partitionItems.get(index);
+			if (!partition.isEmpty()) {
+				futures.add(partitions.get(index).submit(partition));
+			}
+		}
+		Exception exception = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (exception == null) {
+					exception = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
 	}
 
 	private Operation<K, V, T, Object> operation() {
@@ -154,4 +280,89 @@ public class RedisItemWriter<K, V, T> implements ItemStreamWriter<T> {
 		this.poolSize = poolSize;
 	}
 
+	public int getKeyPartitions() {
+		return keyPartitions;
+	}
+
+	/**
+	 * Items are assigned to a partition based on their key, each partition using
+	 * its own connection and thread. Writes to the same key thus never run
+	 * concurrently and are applied in the order they reach the writer: the item
+	 * order within a chunk, and the order of {@link #write(Chunk)} calls across
+	 * chunks. This parallelizes the writes of a single-threaded step without
+	 * reordering them, but cannot restore an order lost upstream: the order of
+	 * {@link #write(Chunk)} calls of a multi-threaded step is arbitrary. Key
+	 * order across threads is kept when reading, see
+	 * {@link com.redis.spring.batch.item.AbstractAsyncItemReader#setPartitionFunction}.
+	 * 
+	 * @param partitions number of key partitions written in parallel. Requires a
+	 *                   key function when greater than 1.
+	 */
+	public void setKeyPartitions(int partitions) {
+		Assert.isTrue(partitions > 0, "Key partitions must be strictly positive");
+		this.keyPartitions = partitions;
+	}
+
+	public Function<T, K> getKeyFunction() {
+		return keyFunction;
+	}
+
+	public void setKeyFunction(Function<T, K> keyFunction) {
+		this.keyFunction = keyFunction;
+	}
+
+	public ToIntFunction<T> getDatabaseFunction() {
+		return databaseFunction;
+	}
+
+	/**
+	 * 
+	 * @param function function returning the index of the database to write each
+	 *                 item to, or {@link KeyValue#NO_DATABASE} for the database
+	 *                 of the client
+	 */
+	public void setDatabaseFunction(ToIntFunction<T> function) {
+		this.databaseFunction = function;
+	}
+
+	private static class Partition<K, V, T> {
+
+		private final OperationExecutor<K, V, T, Object> operationExecutor;
+		private final ToIntFunction<T> databaseFunction;
+		private final ExecutorService executor;
+
+		public Partition(int index, OperationExecutor<K, V, T, Object> operationExecutor,
+				ToIntFunction<T> databaseFunction) {
+			this.operationExecutor = operationExecutor;
+			this.databaseFunction = databaseFunction;
+			this.executor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "redis-writer-partition-" + index);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		public Future<?> submit(List<T> items) {
+			return executor.submit(() -> {
+				write(operationExecutor, databaseFunction, items);
+				return null;
+			});
+		}
+
+		public void close() {
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(PARTITION_CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+					executor.shutdownNow();
+				}
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			} finally {
+				operationExecutor.close();
+			}
+		}
+
+	}
+
 }
@@ -6,7 +6,11 @@ import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -26,14 +30,21 @@ import com.redis.lettucemod.cluster.api.StatefulRedisModulesClusterConnection;
 
 import io.lettuce.core.AbstractRedisClient;
 import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisCommandExecutionException;
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.StringCodec;
 
 public abstract class BatchUtils {
 
+	public static final int DEFAULT_DATABASE_COUNT = 16;
+
+	private static final String DATABASES_CONFIG = "databases";
+
 	private BatchUtils() {
 	}
 
@@ -43,6 +54,29 @@ public abstract class BatchUtils {
 		return (List) BatchUtils.stream(items).map(item -> function.apply(commands, item)).collect(Collectors.toList());
 	}
 
+	/**
+	 * Groups items by cluster slot so that multi-key commands can be issued
+	 * without cross-slot errors. Items are returned as a single group when the
+	 * given commands are not cluster commands.
+	 */
+	public static <K, T> Collection<List<T>> partitionBySlot(RedisAsyncCommands<K, ?> commands,
+			RedisCodec<K, ?> codec, Iterable<? extends T> items, Function<T, K> keyFunction) {
+		if (commands instanceof RedisAdvancedClusterAsyncCommands) {
+			Map<Integer, List<T>> slots = new LinkedHashMap<>();
+			for (T item : items) {
+				int slot = SlotHash.getSlot(codec.encodeKey(keyFunction.apply(item)));
+				slots.computeIfAbsent(slot, s -> new ArrayList<>()).add(item);
+			}
+			return slots.values();
+		}
+		List<T> list = new ArrayList<>();
+		items.forEach(list::add);
+		if (list.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(list);
+	}
+
 	public static String readFile(String filename) throws IOException {
 		try (InputStream inputStream = BatchUtils.class.getClassLoader().getResourceAsStream(filename)) {
 			return FileCopyUtils.copyToString(new InputStreamReader(inputStream));
@@ -106,6 +140,61 @@ public abstract class BatchUtils {
 		return connection;
 	}
 
+	/**
+	 * 
+	 * @return number of databases of the given standalone server, or the Redis
+	 *         default if it cannot be read from its configuration
+	 */
+	public static int databaseCount(AbstractRedisClient client) {
+		try (StatefulRedisModulesConnection<String, String> connection = connection(client, StringCodec.UTF8, null)) {
+			String count = connection.sync().configGet(DATABASES_CONFIG).get(DATABASES_CONFIG);
+			if (count != null) {
+				return Integer.parseInt(count);
+			}
+		} catch (RedisCommandExecutionException e) {
+			// CONFIG can be disabled or renamed
+		}
+		return DEFAULT_DATABASE_COUNT;
+	}
+
+	/**
+	 * Waits for the given futures to complete without collecting their results.
+	 * Futures are waited on in turn against a single deadline, and a failed
+	 * future does not stop waiting for the others.
+	 * 
+	 * @param timeout maximum time to wait, or a negative duration to wait
+	 *                indefinitely
+	 * @throws ExecutionException the first failure, once all futures completed
+	 */
+	public static void awaitAll(Duration timeout, Iterable<? extends RedisFuture<?>> futures)
+			throws TimeoutException, InterruptedException, ExecutionException {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		ExecutionException error = null;
+		for (RedisFuture<?> f : futures) {
+			if (f == null) {
+				continue;
+			}
+			try {
+				if (timeout.isNegative()) {
+					f.get();
+				} else {
+					long nanos = deadline - System.nanoTime();
+					if (nanos < 0 && !f.isDone()) {
+						throw new TimeoutException(String.format("Timed out after %s", timeout));
+					}
+					f.get(Math.max(nanos, 0), TimeUnit.NANOSECONDS);
+				}
+			} catch (ExecutionException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
 	public static <T> List<T> getAll(Duration timeout, Iterable<RedisFuture<T>> futures)
 			throws TimeoutException, InterruptedException, ExecutionException {
 		List<T> items = new ArrayList<>();
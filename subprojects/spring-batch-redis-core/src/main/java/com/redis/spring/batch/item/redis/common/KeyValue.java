@@ -5,11 +5,18 @@ import org.springframework.util.StringUtils;
 public class KeyValue<K, T> {
 
 	public static final long TTL_NO_KEY = -2;
+	/**
+	 * Database index meaning the database of the connection used to read or write
+	 * the key.
+	 */
+	public static final int NO_DATABASE = -1;
 
 	private K key;
 	private String type;
 	private T value;
 	private long ttl;
+	private boolean append;
+	private int database = NO_DATABASE;
 
 	public KeyValue() {
 	}
@@ -19,6 +26,8 @@ public class KeyValue<K, T> {
 		this.ttl = other.ttl;
 		this.type = other.type;
 		this.value = other.value;
+		this.append = other.append;
+		this.database = other.database;
 	}
 
 	public K getKey() {
@@ -57,6 +66,32 @@ public class KeyValue<K, T> {
 		this.ttl = ttl;
 	}
 
+	/**
+	 * 
+	 * @return true if the value only holds the entries appended to the key since
+	 *         it was last read, in which case the existing value must be kept
+	 */
+	public boolean isAppend() {
+		return append;
+	}
+
+	public void setAppend(boolean append) {
+		this.append = append;
+	}
+
+	/**
+	 * 
+	 * @return index of the database holding the key, or {@link #NO_DATABASE} if
+	 *         it is the database of the connection
+	 */
+	public int getDatabase() {
+		return database;
+	}
+
+	public void setDatabase(int database) {
+		this.database = database;
+	}
+
 	public static boolean exists(KeyValue<?, ?> kv) {
 		return kv != null && hasKey(kv) && kv.getTtl() != TTL_NO_KEY && type(kv) != DataType.NONE;
 	}
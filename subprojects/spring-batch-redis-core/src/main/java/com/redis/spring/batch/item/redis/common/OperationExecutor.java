@@ -1,8 +1,10 @@
 package com.redis.spring.batch.item.redis.common;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 import org.apache.commons.pool2.impl.GenericObjectPool;
@@ -33,7 +35,8 @@ public class OperationExecutor<K, V, I, O> implements ItemStream, ItemProcessor<
 	private ReadFrom readFrom;
 	private int poolSize = DEFAULT_POOL_SIZE;
 
-	private GenericObjectPool<StatefulRedisModulesConnection<K, V>> pool;
+	private volatile GenericObjectPool<StatefulRedisModulesConnection<K, V>> pool;
+	private final Map<Integer, GenericObjectPool<StatefulRedisModulesConnection<K, V>>> databasePools = new ConcurrentHashMap<>();
 
 	public OperationExecutor(RedisCodec<K, V> codec, Operation<K, V, I, O> operation) {
 		this.codec = codec;
@@ -48,10 +51,33 @@ public class OperationExecutor<K, V, I, O> implements ItemStream, ItemProcessor<
 	public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
 		Assert.notNull(client, "Redis client not set");
 		initializeOperation();
+		pool = createPool(BatchUtils.supplier(client, codec, readFrom));
+	}
+
+	private GenericObjectPool<StatefulRedisModulesConnection<K, V>> createPool(
+			Supplier<StatefulRedisModulesConnection<K, V>> supplier) {
 		GenericObjectPoolConfig<StatefulRedisModulesConnection<K, V>> config = new GenericObjectPoolConfig<>();
 		config.setMaxTotal(poolSize);
-		Supplier<StatefulRedisModulesConnection<K, V>> supplier = BatchUtils.supplier(client, codec, readFrom);
-		pool = ConnectionPoolSupport.createGenericObjectPool(supplier, config);
+		return ConnectionPoolSupport.createGenericObjectPool(supplier, config);
+	}
+
+	/**
+	 * 
+	 * @return pool of connections to the given database, created on first use.
+	 *         Called for every batch, so it does not lock.
+	 */
+	private GenericObjectPool<StatefulRedisModulesConnection<K, V>> pool(int database) {
+		if (database == KeyValue.NO_DATABASE) {
+			return pool;
+		}
+		return databasePools.computeIfAbsent(database, db -> {
+			Supplier<StatefulRedisModulesConnection<K, V>> supplier = BatchUtils.supplier(client, codec, readFrom);
+			return createPool(() -> {
+				StatefulRedisModulesConnection<K, V> connection = supplier.get();
+				connection.sync().select(db);
+				return connection;
+			});
+		});
 	}
 
 	private void initializeOperation() {
@@ -72,29 +98,113 @@ public class OperationExecutor<K, V, I, O> implements ItemStream, ItemProcessor<
 			pool.close();
 			pool = null;
 		}
+		databasePools.values().forEach(GenericObjectPool::close);
+		databasePools.clear();
 	}
 
 	@Override
 	public List<O> process(Iterable<? extends I> items) throws Exception {
-		try (StatefulRedisModulesConnection<K, V> connection = pool.borrowObject()) {
+		return process(KeyValue.NO_DATABASE, items);
+	}
+
+	/**
+	 * Executes the operation on the given items using connections to the given
+	 * database.
+	 * 
+	 * @param database index of the database, or {@link KeyValue#NO_DATABASE} for
+	 *                 the database of the client
+	 */
+	public List<O> process(int database, Iterable<? extends I> items) throws Exception {
+		return execute(database, items, BatchUtils::getAll, true);
+	}
+
+	/**
+	 * Executes the operation on the given items and waits for completion without
+	 * collecting replies. Intended for write operations whose results are not
+	 * used.
+	 */
+	public void write(Iterable<? extends I> items) throws Exception {
+		write(KeyValue.NO_DATABASE, items);
+	}
+
+	/**
+	 * Same as {@link #write(Iterable)} using connections to the given database.
+	 */
+	public void write(int database, Iterable<? extends I> items) throws Exception {
+		execute(database, items, (timeout, futures) -> {
+			BatchUtils.awaitAll(timeout, futures);
+			return null;
+		}, false);
+	}
+
+	/**
+	 * 
+	 * @param idempotent whether the items can be executed again after some of
+	 *                   their commands succeeded
+	 */
+	private <R> R execute(int database, Iterable<? extends I> items, Completion<O, R> completion, boolean idempotent)
+			throws Exception {
+		try (StatefulRedisModulesConnection<K, V> connection = pool(database).borrowObject()) {
 			connection.setAutoFlushCommands(false);
 			try {
-				return execute(connection, items);
-			} catch (RedisNoScriptException e) {
-				// Potential fail-over of Redis shard(s). Need to reload the LUA script.
-				initializeOperation();
-				return execute(connection, items);
+				List<RedisFuture<O>> futures = execute(connection, items);
+				try {
+					return completion.complete(connection.getTimeout(), futures);
+				} catch (ExecutionException e) {
+					if (!(e.getCause() instanceof RedisNoScriptException)) {
+						throw e;
+					}
+					// Potential fail-over of Redis shard(s). Need to reload the LUA script.
+					initializeOperation();
+					if (!idempotent && !allFailedWithNoScript(futures)) {
+						// Commands that succeeded, e.g. list pushes or stream appends, must not be
+						// sent twice. The step retries or skips the items instead.
+						throw e;
+					}
+					return completion.complete(connection.getTimeout(), execute(connection, items));
+				}
 			} finally {
 				connection.setAutoFlushCommands(true);
 			}
 		}
 	}
 
-	private List<O> execute(StatefulRedisModulesConnection<K, V> connection, Iterable<? extends I> items)
-			throws TimeoutException, InterruptedException, ExecutionException {
+	private List<RedisFuture<O>> execute(StatefulRedisModulesConnection<K, V> connection,
+			Iterable<? extends I> items) {
 		List<RedisFuture<O>> futures = operation.execute(connection.async(), items);
 		connection.flushCommands();
-		return BatchUtils.getAll(connection.getTimeout(), futures);
+		return futures;
+	}
+
+	/**
+	 * 
+	 * @return true if none of the given completed futures ran, i.e. all of them
+	 *         failed because the script was not loaded
+	 */
+	private static boolean allFailedWithNoScript(List<? extends RedisFuture<?>> futures) throws InterruptedException {
+		for (RedisFuture<?> future : futures) {
+			if (future == null) {
+				continue;
+			}
+			if (!future.isDone()) {
+				return false;
+			}
+			try {
+				future.get();
+				return false;
+			} catch (ExecutionException e) {
+				if (!(e.getCause() instanceof RedisNoScriptException)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private interface Completion<O, R> {
+
+		R complete(Duration timeout, List<RedisFuture<O>> futures) throws Exception;
+
 	}
 
 	public void setReadFrom(ReadFrom readFrom) {
@@ -0,0 +1,169 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.util.Assert;
+
+import com.redis.spring.batch.item.redis.common.DataType;
+import com.redis.spring.batch.item.redis.common.KeyValue;
+
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Keeps track of the last position read for list and stream keys so that keys
+ * that were only appended to since can be read from that position instead of
+ * entirely: list length or last stream message ID.
+ * <p>
+ * Any other event on a key discards its position, so that the next read of
+ * that key is a full read. This includes {@code ts.add}, which can backfill or
+ * overwrite samples anywhere in a time-series. Positions of entries that may
+ * not have reached the target, e.g. because their write failed or was
+ * skipped, must be discarded too.
+ * <p>
+ * Positions are kept for a bounded number of keys, the least recently read
+ * ones being discarded first.
+ */
+public class AppendTracker<K> {
+
+	public static final Set<String> APPEND_EVENTS = new HashSet<>(Arrays.asList("rpush", "xadd"));
+	public static final int DEFAULT_CAPACITY = 100000;
+
+	private final Map<Wrapper<K>, Position> positions;
+
+	public AppendTracker() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * 
+	 * @param capacity maximum number of keys whose position is kept
+	 */
+	public AppendTracker(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be strictly positive");
+		this.positions = Collections.synchronizedMap(new LinkedHashMap<Wrapper<K>, Position>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Wrapper<K>, Position> eldest) {
+				return size() > capacity;
+			}
+
+		});
+	}
+
+	public static class Position {
+
+		private final String type;
+		private final String from;
+
+		public Position(String type, String from) {
+			this.type = type;
+			this.from = from;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * 
+		 * @return list start index or exclusive stream message ID
+		 */
+		public String getFrom() {
+			return from;
+		}
+
+	}
+
+	public static boolean isAppend(String event) {
+		return event != null && APPEND_EVENTS.contains(event);
+	}
+
+	/**
+	 * Combines the event of a queued key with a new event for that key. An append
+	 * following a different event no longer describes the change since the key
+	 * was last read.
+	 */
+	public static String combineEvents(String previous, String event) {
+		if (isAppend(event) && !event.equals(previous)) {
+			return null;
+		}
+		return event;
+	}
+
+	/**
+	 * 
+	 * @param key the key to get the read position for
+	 * @return position to read the key from, or null if the key must be read
+	 *         entirely
+	 */
+	public Position position(K key) {
+		return positions.get(new Wrapper<>(key));
+	}
+
+	/**
+	 * Discards the position of the event key if the event is not an append.
+	 * Must be called before the key is read.
+	 */
+	public void event(KeyEvent<K> event) {
+		if (!isAppend(event.getEvent())) {
+			positions.remove(new Wrapper<>(event.getKey()));
+		}
+	}
+
+	/**
+	 * Discards the position of the given key, so that its next read is a full
+	 * read. Must be called when entries read from that position may not have
+	 * been written.
+	 */
+	public void discard(K key) {
+		positions.remove(new Wrapper<>(key));
+	}
+
+	/**
+	 * Records the position following the given key/value, as returned by the
+	 * last read of that key.
+	 */
+	@SuppressWarnings("unchecked")
+	public void update(KeyValue<K, Object> keyValue) {
+		Wrapper<K> key = new Wrapper<>(keyValue.getKey());
+		DataType type = KeyValue.exists(keyValue) && KeyValue.hasValue(keyValue) ? KeyValue.type(keyValue) : null;
+		if (type == null) {
+			positions.remove(key);
+			return;
+		}
+		Position previous = keyValue.isAppend() ? positions.get(key) : null;
+		String from;
+		switch (type) {
+		case LIST:
+			long offset = previous == null ? 0 : Long.parseLong(previous.getFrom());
+			from = String.valueOf(offset + ((Collection<Object>) keyValue.getValue()).size());
+			break;
+		case STREAM:
+			List<StreamMessage<K, Object>> messages = (List<StreamMessage<K, Object>>) keyValue.getValue();
+			if (messages.isEmpty()) {
+				from = previous == null ? "0-0" : previous.getFrom();
+			} else {
+				from = messages.get(messages.size() - 1).getId();
+			}
+			break;
+		default:
+			positions.remove(key);
+			return;
+		}
+		positions.put(key, new Position(type.getString(), from));
+	}
+
+	public void clear() {
+		positions.clear();
+	}
+
+}
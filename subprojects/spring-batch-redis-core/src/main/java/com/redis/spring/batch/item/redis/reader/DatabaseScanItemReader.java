@@ -0,0 +1,91 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.spring.batch.item.redis.common.BatchUtils;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.ScanIterator;
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * Scans the keys of each database in turn. A database is only scanned once the
+ * previous one is exhausted, with a connection selecting it that is closed
+ * before moving to the next database, so that no more than one SCAN page is
+ * held in memory at a time.
+ */
+public class DatabaseScanItemReader<K, V> implements ItemStreamReader<KeyEvent<K>> {
+
+	private final AbstractRedisClient client;
+	private final RedisCodec<K, V> codec;
+	private final int databaseCount;
+
+	private KeyScanArgs scanArgs = new KeyScanArgs();
+	private ReadFrom readFrom;
+
+	private int database;
+	private StatefulRedisModulesConnection<K, V> connection;
+	private ScanIterator<K> scanIterator;
+
+	public DatabaseScanItemReader(AbstractRedisClient client, RedisCodec<K, V> codec, int databaseCount) {
+		this.client = client;
+		this.codec = codec;
+		this.databaseCount = databaseCount;
+	}
+
+	@Override
+	public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
+		database = 0;
+	}
+
+	@Override
+	public synchronized KeyEvent<K> read() {
+		while (scanIterator == null || !scanIterator.hasNext()) {
+			closeConnection();
+			if (database >= databaseCount) {
+				return null;
+			}
+			connection = BatchUtils.connection(client, codec, readFrom);
+			connection.sync().select(database);
+			scanIterator = ScanIterator.scan(connection.sync(), scanArgs);
+			database++;
+		}
+		return new KeyEvent<>(scanIterator.next(), null, database - 1);
+	}
+
+	@Override
+	public synchronized void close() throws ItemStreamException {
+		closeConnection();
+		database = databaseCount;
+	}
+
+	private void closeConnection() {
+		scanIterator = null;
+		if (connection != null) {
+			connection.close();
+			connection = null;
+		}
+	}
+
+	public KeyScanArgs getScanArgs() {
+		return scanArgs;
+	}
+
+	public void setScanArgs(KeyScanArgs args) {
+		this.scanArgs = args;
+	}
+
+	public ReadFrom getReadFrom() {
+		return readFrom;
+	}
+
+	public void setReadFrom(ReadFrom readFrom) {
+		this.readFrom = readFrom;
+	}
+
+}
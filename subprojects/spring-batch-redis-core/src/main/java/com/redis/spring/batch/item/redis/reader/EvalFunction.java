@@ -36,6 +36,9 @@ public class EvalFunction<K, V, T> implements Function<List<Object>, MemKeyValue
 		if (iterator.hasNext()) {
 			keyValue.setValue((T) iterator.next());
 		}
+		if (iterator.hasNext()) {
+			keyValue.setAppend(iterator.next() != null);
+		}
 		return keyValue;
 
 	}
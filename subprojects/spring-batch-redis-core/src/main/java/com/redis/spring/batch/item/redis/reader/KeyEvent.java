@@ -2,14 +2,22 @@ package com.redis.spring.batch.item.redis.reader;
 
 import java.util.Objects;
 
+import com.redis.spring.batch.item.redis.common.KeyValue;
+
 public class KeyEvent<K> {
 
 	private final K key;
 	private final String event;
+	private final int database;
 
 	public KeyEvent(K key, String event) {
+		this(key, event, KeyValue.NO_DATABASE);
+	}
+
+	public KeyEvent(K key, String event, int database) {
 		this.key = key;
 		this.event = event;
+		this.database = database;
 	}
 
 	public K getKey() {
@@ -20,9 +28,19 @@ public class KeyEvent<K> {
 		return event;
 	}
 
+	/**
+	 * 
+	 * @return index of the database holding the key, or
+	 *         {@link KeyValue#NO_DATABASE} if it is the database of the
+	 *         connection
+	 */
+	public int getDatabase() {
+		return database;
+	}
+
 	@Override
 	public int hashCode() {
-		return Objects.hash(key);
+		return Objects.hash(key, database);
 	}
 
 	@SuppressWarnings("rawtypes")
@@ -35,7 +53,7 @@ public class KeyEvent<K> {
 		if (getClass() != obj.getClass())
 			return false;
 		KeyEvent other = (KeyEvent) obj;
-		return Objects.equals(key, other.key);
+		return Objects.equals(key, other.key) && database == other.database;
 	}
 
 }
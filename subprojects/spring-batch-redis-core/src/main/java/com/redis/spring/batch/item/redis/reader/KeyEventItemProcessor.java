@@ -0,0 +1,142 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+
+import com.redis.spring.batch.item.redis.common.KeyValue;
+import com.redis.spring.batch.item.redis.common.OperationExecutor;
+
+/**
+ * Reads the values of keys that were modified. Keys whose last event is a
+ * deletion (del, expired, evicted) are not read: the missing function is used
+ * instead to produce the corresponding key/value, which writers turn into a
+ * delete.
+ * <p>
+ * When an append tracker is set, keys that were only appended to since they
+ * were last read are read from their last position.
+ * <p>
+ * Keys of events from different databases are read with connections to their
+ * respective databases, and the resulting key/values record that database.
+ */
+public class KeyEventItemProcessor<K, V, T>
+		implements ItemProcessor<Iterable<? extends KeyEvent<K>>, List<T>>, ItemStream {
+
+	public static final Set<String> DELETE_EVENTS = new HashSet<>(Arrays.asList("del", "expired", "evicted"));
+
+	private final OperationExecutor<K, V, K, T> reader;
+
+	private Function<K, T> missingFunction;
+	private AppendTracker<K> appendTracker;
+
+	public KeyEventItemProcessor(OperationExecutor<K, V, K, T> reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * 
+	 * @param function function producing the item for a deleted key. If null
+	 *                 deleted keys are read like any other key.
+	 */
+	public void setMissingFunction(Function<K, T> function) {
+		this.missingFunction = function;
+	}
+
+	public void setAppendTracker(AppendTracker<K> tracker) {
+		this.appendTracker = tracker;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		reader.open(executionContext);
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		reader.update(executionContext);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		reader.close();
+	}
+
+	@Override
+	public List<T> process(Iterable<? extends KeyEvent<K>> items) throws Exception {
+		List<T> results = new ArrayList<>();
+		Map<Integer, Read<K>> reads = new LinkedHashMap<>();
+		for (KeyEvent<K> item : items) {
+			if (appendTracker != null) {
+				appendTracker.event(item);
+			}
+			if (isDelete(item)) {
+				results.add(withDatabase(missingFunction.apply(item.getKey()), item.getDatabase()));
+			} else {
+				Read<K> read = reads.computeIfAbsent(item.getDatabase(), db -> new Read<>());
+				read.positions.add(results.size());
+				read.keys.add(item.getKey());
+				results.add(null);
+			}
+		}
+		for (Map.Entry<Integer, Read<K>> entry : reads.entrySet()) {
+			int database = entry.getKey();
+			Read<K> read = entry.getValue();
+			List<T> values = reader.process(database, read.keys);
+			if (appendTracker != null) {
+				values.forEach(this::updatePosition);
+			}
+			if (read.positions.size() == results.size()) {
+				return database == KeyValue.NO_DATABASE ? values : withDatabase(values, database);
+			}
+			for (int index = 0; index < read.positions.size(); index++) {
+				results.set(read.positions.get(index), withDatabase(values.get(index), database));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Keys of a chunk to read from the same database, with the position of their
+	 * values in the results.
+	 */
+	private static class Read<K> {
+
+		private final List<K> keys = new ArrayList<>();
+		private final List<Integer> positions = new ArrayList<>();
+
+	}
+
+	private List<T> withDatabase(List<T> values, int database) {
+		values.forEach(v -> withDatabase(v, database));
+		return values;
+	}
+
+	private T withDatabase(T value, int database) {
+		if (database != KeyValue.NO_DATABASE && value instanceof KeyValue) {
+			((KeyValue<?, ?>) value).setDatabase(database);
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void updatePosition(T value) {
+		if (value instanceof KeyValue) {
+			appendTracker.update((KeyValue<K, Object>) value);
+		}
+	}
+
+	private boolean isDelete(KeyEvent<K> item) {
+		return missingFunction != null && item.getEvent() != null && DELETE_EVENTS.contains(item.getEvent());
+	}
+
+}
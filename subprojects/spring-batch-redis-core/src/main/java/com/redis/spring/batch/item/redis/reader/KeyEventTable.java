@@ -0,0 +1,142 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.redis.spring.batch.item.redis.common.DataType;
+
+/**
+ * Maps keyspace notification event names, as raw bytes, to interned event
+ * names and the data type they apply to. Known events are looked up without
+ * allocating; other events are decoded and typed by prefix.
+ */
+public final class KeyEventTable {
+
+	public static final class Entry {
+
+		private final String event;
+		private final DataType type;
+		private final byte[] bytes;
+
+		private Entry(String event, DataType type, byte[] bytes) {
+			this.event = event;
+			this.type = type;
+			this.bytes = bytes;
+		}
+
+		public String getEvent() {
+			return event;
+		}
+
+		public DataType getType() {
+			return type;
+		}
+
+	}
+
+	private static final Entry[] TABLE = new Entry[256];
+	private static final int MASK = TABLE.length - 1;
+	private static final Map<DataType, String> PREFIXES = new EnumMap<>(DataType.class);
+
+	static {
+		PREFIXES.put(DataType.STREAM, "xgroup-");
+		PREFIXES.put(DataType.TIMESERIES, "ts.");
+		PREFIXES.put(DataType.JSON, "json.");
+		add(DataType.NONE, "del", "expire", "expired", "evicted", "persist", "rename_from", "rename_to", "move_from",
+				"move_to", "copy_to", "restore", "new");
+		add(DataType.STRING, "set", "setrange", "incrby", "incrbyfloat", "append");
+		add(DataType.LIST, "lpush", "rpush", "rpop", "lpop", "linsert", "lset", "lrem", "ltrim");
+		add(DataType.HASH, "hset", "hincrby", "hincrbyfloat", "hdel");
+		add(DataType.SET, "sadd", "spop", "sinterstore", "sunionstore", "sdiffstore");
+		add(DataType.ZSET, "zincr", "zadd", "zrem", "zrembyscore", "zrembyrank", "zdiffstore", "zinterstore",
+				"zunionstore");
+		add(DataType.STREAM, "xadd", "xtrim", "xdel", "xsetid", "xgroup-create", "xgroup-createconsumer",
+				"xgroup-delconsumer", "xgroup-destroy", "xgroup-setid");
+		add(DataType.TIMESERIES, "ts.add", "ts.incrby", "ts.decrby", "ts.create", "ts.alter", "ts.del");
+		add(DataType.JSON, "json.set", "json.del", "json.merge", "json.mset", "json.arrappend", "json.arrinsert",
+				"json.arrpop", "json.arrtrim", "json.clear", "json.numincrby", "json.nummultby", "json.strappend",
+				"json.toggle");
+	}
+
+	private KeyEventTable() {
+	}
+
+	private static void add(DataType type, String... events) {
+		for (String event : events) {
+			Entry entry = new Entry(event, type, event.getBytes(StandardCharsets.UTF_8));
+			int slot = hash(entry.bytes, 0, entry.bytes.length) & MASK;
+			while (TABLE[slot] != null) {
+				slot = (slot + 1) & MASK;
+			}
+			TABLE[slot] = entry;
+		}
+	}
+
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 1;
+		for (int index = offset; index < offset + length; index++) {
+			hash = 31 * hash + bytes[index];
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * 
+	 * @return the entry for the event name held in the given byte range
+	 */
+	public static Entry get(byte[] bytes, int offset, int length) {
+		for (int slot = hash(bytes, offset, length) & MASK; TABLE[slot] != null; slot = (slot + 1) & MASK) {
+			byte[] entryBytes = TABLE[slot].bytes;
+			if (Arrays.equals(entryBytes, 0, entryBytes.length, bytes, offset, offset + length)) {
+				return TABLE[slot];
+			}
+		}
+		String event = new String(bytes, offset, length, StandardCharsets.UTF_8);
+		return new Entry(event, type(event), null);
+	}
+
+	private static DataType type(String event) {
+		String code = event.toLowerCase();
+		for (Entry entry : TABLE) {
+			if (entry != null && entry.event.equals(code)) {
+				return entry.type;
+			}
+		}
+		for (Map.Entry<DataType, String> prefix : PREFIXES.entrySet()) {
+			if (code.startsWith(prefix.getValue())) {
+				return prefix.getKey();
+			}
+		}
+		return DataType.NONE;
+	}
+
+	/**
+	 * 
+	 * @return known events of the given type that are not covered by its
+	 *         {@link #prefix(DataType) prefix}
+	 */
+	public static List<String> events(DataType type) {
+		String prefix = prefix(type);
+		List<String> events = new ArrayList<>();
+		for (Entry entry : TABLE) {
+			if (entry != null && entry.type == type && (prefix == null || !entry.event.startsWith(prefix))) {
+				events.add(entry.event);
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * 
+	 * @return prefix shared by all events of the given type that are not known in
+	 *         advance, or null if there is none
+	 */
+	public static String prefix(DataType type) {
+		return PREFIXES.get(type);
+	}
+
+}
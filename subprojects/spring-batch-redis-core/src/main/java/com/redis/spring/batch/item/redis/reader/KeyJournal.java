@@ -0,0 +1,226 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import org.springframework.util.Assert;
+
+/**
+ * Append-only journal of key events stored in memory-mapped segment files, so
+ * that keys notified but not yet replicated can be replayed after a restart.
+ * <p>
+ * Positions are byte offsets in the journal. Committing a position records
+ * that all events before it were replicated: replay starts from the last
+ * committed position and segments entirely before it are deleted.
+ * <p>
+ * Each record is the key length plus one (zero marks the end of the data), the
+ * event length, the event and the key. A length of -1 marks the end of a
+ * segment whose remaining space is too small for the next record.
+ */
+public class KeyJournal implements AutoCloseable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private static final String SEGMENT_FORMAT = "%020d.journal";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final String COMMIT_FILE = "commit";
+	private static final int END_OF_SEGMENT = -1;
+	private static final int HEADER_SIZE = Integer.BYTES + 1;
+
+	private final Path directory;
+	private final int segmentSize;
+
+	private FileChannel commitChannel;
+	private MappedByteBuffer segment;
+	private long segmentBase;
+	private long committedPosition;
+
+	public KeyJournal(Path directory) {
+		this(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public KeyJournal(Path directory, int segmentSize) {
+		Assert.notNull(directory, "Directory must not be null");
+		Assert.isTrue(segmentSize > HEADER_SIZE, "Segment size too small");
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Opens the journal, positioning it after the last record written.
+	 */
+	public synchronized void open() throws IOException {
+		if (commitChannel != null) {
+			return;
+		}
+		Files.createDirectories(directory);
+		commitChannel = FileChannel.open(directory.resolve(COMMIT_FILE), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+		committedPosition = commitChannel.read(buffer, 0) == Long.BYTES ? buffer.getLong(0) : 0;
+		List<Long> bases = segmentBases();
+		if (bases.isEmpty()) {
+			// Start a new journal after the committed position
+			mapSegment(committedPosition - committedPosition % segmentSize);
+			segment.position((int) (committedPosition - segmentBase));
+		} else {
+			mapSegment(bases.get(bases.size() - 1));
+			segment.position(end(segment));
+		}
+	}
+
+	/**
+	 * Appends a record for the given key and event.
+	 *
+	 * @return position after the record
+	 */
+	public synchronized long append(byte[] key, String event) throws IOException {
+		byte[] eventBytes = event == null ? new byte[0] : event.getBytes(StandardCharsets.UTF_8);
+		Assert.isTrue(eventBytes.length <= 0xFF, "Event too long");
+		int length = HEADER_SIZE + eventBytes.length + key.length;
+		Assert.isTrue(length <= segmentSize, "Key too large for journal segment");
+		if (segment.remaining() < length) {
+			if (segment.remaining() >= Integer.BYTES) {
+				segment.putInt(END_OF_SEGMENT);
+			}
+			mapSegment(segmentBase + segmentSize);
+		}
+		segment.putInt(key.length + 1);
+		segment.put((byte) eventBytes.length);
+		segment.put(eventBytes);
+		segment.put(key);
+		return getPosition();
+	}
+
+	/**
+	 * Passes the key and event of each record after the committed position to the
+	 * given consumer.
+	 */
+	public synchronized void replay(BiConsumer<byte[], String> consumer) throws IOException {
+		for (long base : segmentBases()) {
+			if (base + segmentSize <= committedPosition) {
+				continue;
+			}
+			ByteBuffer buffer = base == segmentBase ? segment.duplicate() : read(base);
+			buffer.position(base < committedPosition ? (int) (committedPosition - base) : 0);
+			if (base == segmentBase) {
+				buffer.limit(segment.position());
+			}
+			while (buffer.remaining() >= HEADER_SIZE) {
+				int header = buffer.getInt();
+				if (header <= 0) {
+					break;
+				}
+				int keyLength = header - 1;
+				byte[] event = new byte[buffer.get() & 0xFF];
+				buffer.get(event);
+				byte[] key = new byte[keyLength];
+				buffer.get(key);
+				consumer.accept(key, event.length == 0 ? null : new String(event, StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	/**
+	 * Records that all events before the given position were replicated and
+	 * deletes segments that only contain such events.
+	 */
+	public synchronized void commit(long position) throws IOException {
+		if (position <= committedPosition) {
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, position);
+		commitChannel.write(buffer, 0);
+		commitChannel.force(false);
+		committedPosition = position;
+		for (long base : segmentBases()) {
+			if (base + segmentSize <= position && base != segmentBase) {
+				Files.deleteIfExists(segmentPath(base));
+			}
+		}
+	}
+
+	public synchronized long getPosition() {
+		return segmentBase + segment.position();
+	}
+
+	public synchronized long getCommittedPosition() {
+		return committedPosition;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (segment != null) {
+			segment.force();
+			segment = null;
+		}
+		if (commitChannel != null) {
+			commitChannel.close();
+			commitChannel = null;
+		}
+	}
+
+	private void mapSegment(long base) throws IOException {
+		if (segment != null) {
+			segment.force();
+		}
+		try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		}
+		segmentBase = base;
+	}
+
+	private ByteBuffer read(long base) throws IOException {
+		try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentSize));
+		}
+	}
+
+	/**
+	 *
+	 * @return offset in the given segment after its last record
+	 */
+	private static int end(ByteBuffer segment) {
+		ByteBuffer buffer = segment.duplicate();
+		buffer.position(0);
+		while (buffer.remaining() >= HEADER_SIZE) {
+			int start = buffer.position();
+			int header = buffer.getInt();
+			if (header == END_OF_SEGMENT) {
+				return buffer.capacity();
+			}
+			if (header == 0) {
+				return start;
+			}
+			int eventLength = buffer.get() & 0xFF;
+			buffer.position(buffer.position() + eventLength + header - 1);
+		}
+		return buffer.position();
+	}
+
+	private List<Long> segmentBases() throws IOException {
+		List<Long> bases = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.map(p -> p.getFileName().toString()).filter(n -> n.endsWith(SEGMENT_SUFFIX))
+					.map(n -> Long.parseLong(n.substring(0, n.length() - SEGMENT_SUFFIX.length()))).sorted()
+					.forEach(bases::add);
+		}
+		return bases;
+	}
+
+	private Path segmentPath(long base) {
+		return directory.resolve(String.format(SEGMENT_FORMAT, base));
+	}
+
+}
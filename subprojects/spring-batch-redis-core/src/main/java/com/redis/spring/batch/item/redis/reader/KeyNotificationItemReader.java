@@ -1,51 +1,96 @@
 package com.redis.spring.batch.item.redis.reader;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 
-import com.redis.spring.batch.item.AbstractQueuePollableItemReader;
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.spring.batch.item.AbstractPollableItemReader;
 import com.redis.spring.batch.item.redis.common.BatchUtils;
 import com.redis.spring.batch.item.redis.common.DataType;
 
 import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.KeyScanCursor;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.ScanCursor;
 import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.event.ClusterTopologyChangedEvent;
 import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
-import io.lettuce.core.cluster.pubsub.RedisClusterPubSubAdapter;
-import io.lettuce.core.cluster.pubsub.RedisClusterPubSubListener;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode.NodeFlag;
 import io.lettuce.core.cluster.pubsub.StatefulRedisClusterPubSubConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.pubsub.RedisPubSubAdapter;
 import io.lettuce.core.pubsub.RedisPubSubListener;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.pubsub.api.sync.RedisPubSubCommands;
 
-public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemReader<K> {
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reads keys from keyspace notifications. In cluster mode each upstream node
+ * is subscribed to separately and feeds its own queue, and queues are polled
+ * in turn. Nodes that become upstream after the reader is opened get their own
+ * queue when the client publishes the topology change.
+ */
+public class KeyNotificationItemReader<K, V> extends AbstractPollableItemReader<KeyEvent<K>> {
 
 	private static final String KEYSPACE_PATTERN = "__keyspace@%s__:%s";
 	private static final String KEYEVENT_PATTERN = "__keyevent@%s__:*";
+	private static final String KEYEVENT_CHANNEL = "__keyevent@%s__:%s";
 
-	private static final String SEPARATOR = ":";
+	private static final byte SEPARATOR = ':';
+	private static final int RESCAN_COUNT = 1000;
+	private static final long SHARD_WAIT_MILLIS = 10;
+	private static final long RECOVERY_INTERVAL_MILLIS = 10;
 
 	private final AbstractRedisClient client;
 	private final RedisCodec<K, V> codec;
-	private final Function<String, K> keyEncoder;
-	private final Function<K, String> keyDecoder;
-	private final Function<V, String> valueDecoder;
 
 	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+	public static final int ALL_DATABASES = -1;
+	public static final Duration DEFAULT_COALESCING_WINDOW = Duration.ZERO; // no coalescing by default
 
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
 	private int database;
 	private String keyPattern;
 	private String keyType;
+	private Duration coalescingWindow = DEFAULT_COALESCING_WINDOW;
 
 	private AutoCloseable publisher;
-	private HashSet<Wrapper<K>> keySet;
+	private final List<UniqueKeyQueue<K>> queues = new CopyOnWriteArrayList<>();
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final AtomicInteger nextQueue = new AtomicInteger();
+	private ScheduledExecutorService recoveryExecutor;
+	private final List<Recovery> recoveries = new ArrayList<>();
 	private List<KeyEventListener<K>> eventListeners = new ArrayList<>();
+	private KeyJournal journal;
+	private volatile long queuedPosition = -1;
+	private volatile long drainedPosition = -1;
 
 	public enum KeyEventStatus {
 
@@ -63,26 +108,75 @@ public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemRe
 		setName(ClassUtils.getShortName(getClass()));
 		this.client = client;
 		this.codec = codec;
-		this.keyEncoder = BatchUtils.stringKeyFunction(codec);
-		this.keyDecoder = BatchUtils.toStringKeyFunction(codec);
-		this.valueDecoder = BatchUtils.toStringValueFunction(codec);
 	}
 
 	public void addEventListener(KeyEventListener<K> listener) {
 		eventListeners.add(listener);
 	}
 
-	public String pubSubPattern() {
-		if (isKeyEvents()) {
-			return String.format(KEYEVENT_PATTERN, database);
+	/**
+	 * 
+	 * @return channels to subscribe to. When filtering key events by type, only
+	 *         the channels of known events for that type are subscribed to.
+	 */
+	public List<String> pubSubChannels() {
+		List<String> channels = new ArrayList<>();
+		DataType type = keyEventType();
+		if (type != null && !isAllDatabases()) {
+			KeyEventTable.events(type).forEach(e -> channels.add(String.format(KEYEVENT_CHANNEL, database, e)));
+		}
+		return channels;
+	}
+
+	/**
+	 * 
+	 * @return channel patterns to subscribe to
+	 */
+	public List<String> pubSubPatterns() {
+		List<String> patterns = new ArrayList<>();
+		String db = isAllDatabases() ? "*" : String.valueOf(database);
+		DataType type = keyEventType();
+		if (type == null) {
+			if (isKeyEvents()) {
+				patterns.add(String.format(KEYEVENT_PATTERN, db));
+			} else {
+				patterns.add(String.format(KEYSPACE_PATTERN, db, keyPattern));
+			}
+		} else {
+			if (isAllDatabases()) {
+				KeyEventTable.events(type).forEach(e -> patterns.add(String.format(KEYEVENT_CHANNEL, db, e)));
+			}
+			String prefix = KeyEventTable.prefix(type);
+			if (prefix != null) {
+				patterns.add(String.format(KEYEVENT_CHANNEL, db, prefix + "*"));
+			}
+		}
+		return patterns;
+	}
+
+	/**
+	 * 
+	 * @return type of key events to subscribe to, or null if all events are
+	 *         subscribed to
+	 */
+	private DataType keyEventType() {
+		if (isKeyEvents() && keyType != null) {
+			DataType type = DataType.of(keyType);
+			if (type != null && type != DataType.NONE) {
+				return type;
+			}
 		}
-		return String.format(KEYSPACE_PATTERN, database, keyPattern);
+		return null;
 	}
 
 	private boolean isKeyEvents() {
 		return keyPattern == null;
 	}
 
+	private boolean isAllDatabases() {
+		return database == ALL_DATABASES;
+	}
+
 	@Override
 	public boolean isComplete() {
 		return publisher == null;
@@ -90,86 +184,440 @@ public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemRe
 
 	@Override
 	protected synchronized void doOpen() throws Exception {
-		super.doOpen();
-		if (keySet == null) {
-			keySet = new HashSet<>(getQueueCapacity());
-		}
 		if (publisher == null) {
+			if (isAllDatabases()) {
+				Assert.isInstanceOf(RedisClient.class, client, getName() + ": All databases require a standalone client");
+				Assert.isNull(journal, getName() + ": Journal is not supported with all databases");
+				int count = BatchUtils.databaseCount(client);
+				for (int index = 0; index < count; index++) {
+					recoveries.add(new Recovery(index, newQueue()));
+				}
+			} else {
+				recoveries.add(new Recovery(database, null));
+			}
 			publisher = publisher();
+			if (journal != null) {
+				replayJournal();
+			}
+			recoveryExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, getName() + "-recovery");
+				thread.setDaemon(true);
+				return thread;
+			});
+			recoveryExecutor.scheduleWithFixedDelay(this::recoverOverflow, RECOVERY_INTERVAL_MILLIS,
+					RECOVERY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
 		}
 	}
 
+	/**
+	 * Queues the keys of journaled events that were not committed, e.g. because
+	 * the previous run stopped before replicating them.
+	 */
+	private void replayJournal() throws IOException {
+		journal.open();
+		synchronized (journal) {
+			UniqueKeyQueue<K> queue = recoveryQueue();
+			Recovery recovery = recoveries.get(0);
+			journal.replay((key, event) -> recovery.offerDropped(queue, key(key, 0)));
+			queuedPosition = journal.getPosition();
+		}
+	}
+
+	private UniqueKeyQueue<K> newQueue() {
+		UniqueKeyQueue<K> queue = new UniqueKeyQueue<>(queueCapacity);
+		queue.setDelay(coalescingWindow);
+		queue.setEventFunction(AppendTracker::combineEvents);
+		queues.add(queue);
+		return queue;
+	}
+
 	@Override
 	protected synchronized void doClose() throws Exception {
+		if (recoveryExecutor != null) {
+			// A pending recovery waits for this lock and then finds nothing to recover
+			recoveryExecutor.shutdownNow();
+			recoveryExecutor = null;
+		}
 		if (publisher != null) {
 			publisher.close();
 			publisher = null;
 		}
-		keySet = null;
-		super.doClose();
+		queuedPosition = -1;
+		drainedPosition = -1;
+		recoveries.forEach(Recovery::close);
+		recoveries.clear();
+		queues.clear();
 	}
 
-	private void keySpaceNotification(K channel, V message) {
-		addEvent(keyEncoder.apply(suffix(channel)), valueDecoder.apply(message));
+	@Override
+	protected KeyEvent<K> doPoll(long timeout, TimeUnit unit) throws InterruptedException {
+		long position = queuedPosition;
+		KeyEvent<K> keyEvent;
+		if (queues.size() == 1 && !isAllDatabases()) {
+			keyEvent = queues.get(0).pollEvent(timeout, unit);
+		} else {
+			keyEvent = pollShards(unit.toNanos(timeout));
+		}
+		if (keyEvent == null && journal != null && isDrained()) {
+			drainedPosition = position;
+		}
+		return keyEvent;
 	}
 
-	@SuppressWarnings("unchecked")
-	private void keyEventNotification(K channel, V message) {
-		addEvent((K) message, suffix(channel));
+	/**
+	 * 
+	 * @return true if all queued and dropped keys were polled
+	 */
+	private synchronized boolean isDrained() {
+		return recoveries.stream().allMatch(Recovery::isEmpty) && queues.stream().allMatch(UniqueKeyQueue::isEmpty);
 	}
 
-	private void addEvent(K key, String event) {
-		if (acceptType(event)) {
-			Wrapper<K> wrapper = new Wrapper<>(key);
-			if (keySet.contains(wrapper)) {
-				notifyListeners(key, event, KeyEventStatus.DUPLICATE);
-			} else {
-				boolean added = queue.offer(key);
-				if (added) {
-					keySet.add(wrapper);
+	/**
+	 * 
+	 * @return journal position before which the keys of all events were polled,
+	 *         or -1 if there is none
+	 */
+	public long getDrainedPosition() {
+		return drainedPosition;
+	}
+
+	/**
+	 * Commits the given journal position, so that events before it are not
+	 * replayed on the next open.
+	 */
+	public void commit(long position) {
+		try {
+			journal.commit(position);
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not commit journal position " + position, e);
+		}
+	}
+
+	/**
+	 * Polls shard queues in turn so that a busy shard does not hold back the
+	 * others, waiting for a notification if all of them are empty. With all
+	 * databases there is one queue per database and events are tagged with the
+	 * index of their queue.
+	 */
+	private KeyEvent<K> pollShards(long nanos) throws InterruptedException {
+		long deadline = System.nanoTime() + nanos;
+		for (;;) {
+			for (int count = 0; count < queues.size(); count++) {
+				int index = Math.floorMod(nextQueue.getAndIncrement(), queues.size());
+				KeyEvent<K> keyEvent = queues.get(index).pollEvent(0, TimeUnit.NANOSECONDS);
+				if (keyEvent != null) {
+					return isAllDatabases() ? new KeyEvent<>(keyEvent.getKey(), keyEvent.getEvent(), index) : keyEvent;
+				}
+			}
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return null;
+			}
+			waiters.incrementAndGet();
+			try {
+				synchronized (waiters) {
+					waiters.wait(Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMillis(remaining), SHARD_WAIT_MILLIS)));
+				}
+			} finally {
+				waiters.decrementAndGet();
+			}
+		}
+	}
+
+	private void signalWaiters() {
+		if (waiters.get() > 0) {
+			synchronized (waiters) {
+				waiters.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Queues keys whose notifications were dropped as capacity frees up. If too
+	 * many keys were dropped to keep track of, the keyspace is scanned instead.
+	 * Runs periodically on its own thread so that polling threads never scan.
+	 */
+	private synchronized void recoverOverflow() {
+		if (queues.isEmpty()) {
+			return;
+		}
+		try {
+			recoveries.forEach(Recovery::recover);
+		} catch (RedisException e) {
+			// Dropped keys and scan cursor are kept, retried on next run
+		}
+	}
+
+	private UniqueKeyQueue<K> recoveryQueue() {
+		UniqueKeyQueue<K> recoveryQueue = queues.get(0);
+		for (UniqueKeyQueue<K> queue : queues) {
+			if (queue.remainingCapacity() > recoveryQueue.remainingCapacity()) {
+				recoveryQueue = queue;
+			}
+		}
+		return recoveryQueue;
+	}
+
+	/**
+	 * Keys of a database whose notifications were dropped because their queue was
+	 * full, and the scan that replaces them when too many were dropped.
+	 */
+	private class Recovery {
+
+		private final int database;
+		private final UniqueKeyQueue<K> queue;
+		private final OverflowTracker<K> overflowTracker = new OverflowTracker<>(queueCapacity);
+		private final Deque<K> scanKeys = new ArrayDeque<>();
+		private ScanCursor scanCursor;
+		private StatefulRedisModulesConnection<K, V> scanConnection;
+
+		/**
+		 * 
+		 * @param queue queue to recover keys to, or null to recover them to the
+		 *              queue with the most remaining capacity
+		 */
+		public Recovery(int database, UniqueKeyQueue<K> queue) {
+			this.database = database;
+			this.queue = queue;
+		}
+
+		public boolean isEmpty() {
+			return scanCursor == null && scanKeys.isEmpty() && overflowTracker.isEmpty();
+		}
+
+		public void recover() {
+			if (isEmpty()) {
+				return;
+			}
+			UniqueKeyQueue<K> target = queue == null ? recoveryQueue() : queue;
+			K key;
+			while (target.remainingCapacity() > 0 && (key = overflowTracker.poll()) != null) {
+				offerDropped(target, key);
+			}
+			if (scanCursor == null && scanKeys.isEmpty() && overflowTracker.takeRescan()) {
+				scanCursor = ScanCursor.INITIAL;
+			}
+			while (target.remainingCapacity() > 0 && (scanCursor != null || !scanKeys.isEmpty())) {
+				if (scanKeys.isEmpty()) {
+					KeyScanCursor<K> cursor = scanConnection().sync().scan(scanCursor, rescanArgs());
+					scanKeys.addAll(cursor.getKeys());
+					scanCursor = cursor.isFinished() ? null : cursor;
 				} else {
-					notifyListeners(key, event, KeyEventStatus.QUEUE_FULL);
+					offerDropped(target, scanKeys.poll());
 				}
 			}
-		} else {
+		}
+
+		public void offerDropped(UniqueKeyQueue<K> target, K key) {
+			UniqueKeyQueue.Result result = target.tryOffer(key);
+			if (result == UniqueKeyQueue.Result.FULL) {
+				overflowTracker.add(key);
+			} else if (result == UniqueKeyQueue.Result.ADDED) {
+				signalWaiters();
+			}
+		}
+
+		public void dropped(K key) {
+			overflowTracker.add(key);
+		}
+
+		private StatefulRedisModulesConnection<K, V> scanConnection() {
+			if (scanConnection == null) {
+				scanConnection = BatchUtils.connection(client, codec, null);
+				if (database != 0) {
+					scanConnection.sync().select(database);
+				}
+			}
+			return scanConnection;
+		}
+
+		public void close() {
+			if (scanConnection != null) {
+				scanConnection.close();
+				scanConnection = null;
+			}
+			scanCursor = null;
+			scanKeys.clear();
+		}
+
+	}
+
+	private KeyScanArgs rescanArgs() {
+		KeyScanArgs args = KeyScanArgs.Builder.limit(RESCAN_COUNT);
+		if (keyPattern != null) {
+			args.match(keyPattern);
+		}
+		if (keyType != null) {
+			args.type(keyType);
+		}
+		return args;
+	}
+
+	/**
+	 * 
+	 * @return the queue of the first shard, or null if the reader is not open
+	 */
+	public UniqueKeyQueue<K> getQueue() {
+		return queues.isEmpty() ? null : queues.get(0);
+	}
+
+	/**
+	 * 
+	 * @return one queue per shard (upstream node) in cluster mode, a single queue
+	 *         otherwise
+	 */
+	public List<UniqueKeyQueue<K>> getQueues() {
+		return queues;
+	}
+
+	/**
+	 * Channel is __keyspace@db__:key and message is the event name
+	 */
+	private void keySpaceNotification(UniqueKeyQueue<K> queue, Recovery recovery, byte[] channel, byte[] message) {
+		int start = separator(channel) + 1;
+		if (start > 0) {
+			addEvent(queue, recovery, key(channel, start), KeyEventTable.get(message, 0, message.length));
+		}
+	}
+
+	/**
+	 * Channel is __keyevent@db__:event and message is the key
+	 */
+	private void keyEventNotification(UniqueKeyQueue<K> queue, Recovery recovery, byte[] channel, byte[] message) {
+		int start = separator(channel) + 1;
+		if (start > 0) {
+			addEvent(queue, recovery, key(message, 0), KeyEventTable.get(channel, start, channel.length - start));
+		}
+	}
+
+	private static int separator(byte[] channel) {
+		for (int index = 0; index < channel.length; index++) {
+			if (channel[index] == SEPARATOR) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 
+	 * @return database index between '@' and '__' in the given channel, or -1 if
+	 *         there is none
+	 */
+	private static int database(byte[] channel) {
+		int index = 0;
+		while (index < channel.length && channel[index] != '@') {
+			index++;
+		}
+		int database = -1;
+		for (index++; index < channel.length && channel[index] >= '0' && channel[index] <= '9'; index++) {
+			database = Math.max(database, 0) * 10 + channel[index] - '0';
+		}
+		return database;
+	}
+
+	@SuppressWarnings("unchecked")
+	private K key(byte[] bytes, int offset) {
+		if (codec instanceof ByteArrayCodec) {
+			return (K) (offset == 0 ? bytes : Arrays.copyOfRange(bytes, offset, bytes.length));
+		}
+		return codec.decodeKey(ByteBuffer.wrap(bytes, offset, bytes.length - offset));
+	}
+
+	private void addEvent(UniqueKeyQueue<K> queue, Recovery recovery, K key, KeyEventTable.Entry entry) {
+		String event = entry.getEvent();
+		if (!acceptType(entry.getType())) {
 			notifyListeners(key, event, KeyEventStatus.KEY_TYPE);
+		} else if (journal == null) {
+			offer(queue, recovery, key, event);
+		} else {
+			// Journal position is published once the key is queued
+			synchronized (journal) {
+				long position;
+				try {
+					position = journal.append(keyBytes(key), event);
+				} catch (IOException e) {
+					throw new ItemStreamException("Could not append to journal", e);
+				}
+				offer(queue, recovery, key, event);
+				queuedPosition = position;
+			}
 		}
 	}
 
+	private void offer(UniqueKeyQueue<K> queue, Recovery recovery, K key, String event) {
+		UniqueKeyQueue.Result result = queue.tryOffer(key, event);
+		if (result == UniqueKeyQueue.Result.ADDED) {
+			signalWaiters();
+		} else if (result == UniqueKeyQueue.Result.DUPLICATE) {
+			notifyListeners(key, event, KeyEventStatus.DUPLICATE);
+		} else if (result == UniqueKeyQueue.Result.FULL) {
+			recovery.dropped(key);
+			notifyListeners(key, event, KeyEventStatus.QUEUE_FULL);
+		}
+	}
+
+	private byte[] keyBytes(K key) {
+		if (key instanceof byte[]) {
+			return (byte[]) key;
+		}
+		ByteBuffer buffer = codec.encodeKey(key);
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
 	private void notifyListeners(K key, String event, KeyEventStatus status) {
 		eventListeners.forEach(l -> l.onKeyEvent(key, event, status));
 	}
 
-	private boolean acceptType(String event) {
-		return keyType == null || keyType.equalsIgnoreCase(keyType(event).getString());
+	private boolean acceptType(DataType type) {
+		return keyType == null || keyType.equalsIgnoreCase(type.getString());
 	}
 
-	private NotificationConsumer<K, V> notificationConsumer() {
+	private RedisPubSubListener<byte[], byte[]> newListener() {
+		if (isAllDatabases()) {
+			return new KeyNotificationListener<>(this::databaseNotification);
+		}
+		UniqueKeyQueue<K> queue = newQueue();
+		Recovery recovery = recoveries.get(0);
 		if (isKeyEvents()) {
-			return this::keyEventNotification;
+			return new KeyNotificationListener<>(
+					(channel, message) -> keyEventNotification(queue, recovery, channel, message));
 		}
-		return this::keySpaceNotification;
+		return new KeyNotificationListener<>(
+				(channel, message) -> keySpaceNotification(queue, recovery, channel, message));
 	}
 
-	private String suffix(K key) {
-		String string = keyDecoder.apply(key);
-		int index = string.indexOf(SEPARATOR);
-		if (index > 0) {
-			return string.substring(index + 1);
+	/**
+	 * Routes a notification of any database to the queue of that database
+	 */
+	private void databaseNotification(byte[] channel, byte[] message) {
+		int index = database(channel);
+		if (index < 0 || index >= queues.size()) {
+			return;
+		}
+		if (isKeyEvents()) {
+			keyEventNotification(queues.get(index), recoveries.get(index), channel, message);
+		} else {
+			keySpaceNotification(queues.get(index), recoveries.get(index), channel, message);
 		}
-		return null;
 	}
 
 	private AutoCloseable publisher() {
-		String pubSubPattern = pubSubPattern();
-		K pattern = keyEncoder.apply(pubSubPattern);
-		NotificationConsumer<K, V> consumer = notificationConsumer();
+		// Notifications are parsed from raw bytes, see keySpaceNotification and
+		// keyEventNotification
+		Subscription<byte[]> subscription = new Subscription<>(bytes(pubSubChannels()), bytes(pubSubPatterns()));
 		if (client instanceof RedisClusterClient) {
-			RedisClusterPubSubListener<K, V> listener = new ClusterKeyNotificationListener<>(consumer);
-			return new RedisClusterKeyNotificationPublisher<>((RedisClusterClient) client, codec, listener, pattern);
+			return new RedisClusterKeyNotificationPublisher<>((RedisClusterClient) client, ByteArrayCodec.INSTANCE,
+					this::newListener, subscription);
 		}
-		RedisPubSubListener<K, V> listener = new KeyNotificationListener<>(consumer);
-		return new RedisKeyNotificationPublisher<>((RedisClient) client, codec, listener, pattern);
+		return new RedisKeyNotificationPublisher<>((RedisClient) client, ByteArrayCodec.INSTANCE, newListener(),
+				subscription);
+	}
+
+	private static byte[][] bytes(List<String> strings) {
+		return strings.stream().map(s -> s.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
 	}
 
 	private interface NotificationConsumer<K, V> {
@@ -186,6 +634,11 @@ public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemRe
 			this.consumer = consumer;
 		}
 
+		@Override
+		public void message(K channel, V message) {
+			consumer.accept(channel, message);
+		}
+
 		@Override
 		public void message(K pattern, K channel, V message) {
 			consumer.accept(channel, message);
@@ -193,94 +646,71 @@ public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemRe
 
 	}
 
-	private static class ClusterKeyNotificationListener<K, V> extends RedisClusterPubSubAdapter<K, V> {
+	private static class Subscription<K> {
 
-		private final NotificationConsumer<K, V> consumer;
+		private final K[] channels;
+		private final K[] patterns;
 
-		public ClusterKeyNotificationListener(NotificationConsumer<K, V> consumer) {
-			this.consumer = consumer;
+		public Subscription(K[] channels, K[] patterns) {
+			this.channels = channels;
+			this.patterns = patterns;
 		}
 
-		@Override
-		public void message(RedisClusterNode node, K pattern, K channel, V message) {
-			consumer.accept(channel, message);
+		public void subscribe(RedisPubSubCommands<K, ?> commands) {
+			if (channels.length > 0) {
+				commands.subscribe(channels);
+			}
+			if (patterns.length > 0) {
+				commands.psubscribe(patterns);
+			}
 		}
-	}
 
-	@Override
-	protected K doPoll(long timeout, TimeUnit unit) throws InterruptedException {
-		K key = super.doPoll(timeout, unit);
-		if (key == null) {
-			return null;
-		}
-		keySet.remove(new Wrapper<>(key));
-		return key;
-	}
-
-	private DataType keyType(String event) {
-		if (event == null) {
-			return DataType.NONE;
-		}
-		String code = event.toLowerCase();
-		if (code.startsWith("xgroup-")) {
-			return DataType.STREAM;
-		}
-		if (code.startsWith("ts.")) {
-			return DataType.TIMESERIES;
-		}
-		if (code.startsWith("json.")) {
-			return DataType.JSON;
-		}
-		switch (code) {
-		case "set":
-		case "setrange":
-		case "incrby":
-		case "incrbyfloat":
-		case "append":
-			return DataType.STRING;
-		case "lpush":
-		case "rpush":
-		case "rpop":
-		case "lpop":
-		case "linsert":
-		case "lset":
-		case "lrem":
-		case "ltrim":
-			return DataType.LIST;
-		case "hset":
-		case "hincrby":
-		case "hincrbyfloat":
-		case "hdel":
-			return DataType.HASH;
-		case "sadd":
-		case "spop":
-		case "sinterstore":
-		case "sunionstore":
-		case "sdiffstore":
-			return DataType.SET;
-		case "zincr":
-		case "zadd":
-		case "zrem":
-		case "zrembyscore":
-		case "zrembyrank":
-		case "zdiffstore":
-		case "zinterstore":
-		case "zunionstore":
-			return DataType.ZSET;
-		case "xadd":
-		case "xtrim":
-		case "xdel":
-		case "xsetid":
-			return DataType.STREAM;
-		default:
-			return DataType.NONE;
+		public void unsubscribe(RedisPubSubCommands<K, ?> commands) {
+			if (channels.length > 0) {
+				commands.unsubscribe(channels);
+			}
+			if (patterns.length > 0) {
+				commands.punsubscribe(patterns);
+			}
 		}
+
+	}
+
+	public KeyJournal getJournal() {
+		return journal;
+	}
+
+	/**
+	 * 
+	 * @param journal journal that accepted events are appended to before being
+	 *                queued, and whose uncommitted events are queued on open.
+	 *                The journal is opened with this reader but not closed, so
+	 *                that positions can still be committed once the keys read
+	 *                last are replicated.
+	 */
+	public void setJournal(KeyJournal journal) {
+		this.journal = journal;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
 	}
 
 	public int getDatabase() {
 		return database;
 	}
 
+	/**
+	 * 
+	 * @param database index of the database to read keys from, or
+	 *                 {@link #ALL_DATABASES} to read keys of every database of a
+	 *                 standalone server, each event carrying the index of its
+	 *                 database
+	 */
 	public void setDatabase(int database) {
 		this.database = database;
 	}
@@ -301,27 +731,40 @@ public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemRe
 		this.keyType = keyType;
 	}
 
+	public Duration getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	/**
+	 * 
+	 * @param window minimum delay between the first notification for a key and
+	 *               the moment that key is released to the reader. Events
+	 *               received for that key within the window are collapsed into a
+	 *               single read. Must be set before the reader is opened.
+	 */
+	public void setCoalescingWindow(Duration window) {
+		this.coalescingWindow = window;
+	}
+
 	private static class RedisKeyNotificationPublisher<K, V> implements AutoCloseable {
 
 		private final StatefulRedisPubSubConnection<K, V> connection;
-		private final K pattern;
+		private final Subscription<K> subscription;
 		private final RedisPubSubListener<K, V> listener;
 
-		@SuppressWarnings("unchecked")
 		public RedisKeyNotificationPublisher(RedisClient client, RedisCodec<K, V> codec,
-				RedisPubSubListener<K, V> listener, K pattern) {
+				RedisPubSubListener<K, V> listener, Subscription<K> subscription) {
 			this.connection = client.connectPubSub(codec);
 			this.listener = listener;
-			this.pattern = pattern;
+			this.subscription = subscription;
 			connection.addListener(listener);
-			connection.sync().psubscribe(pattern);
+			subscription.subscribe(connection.sync());
 		}
 
-		@SuppressWarnings("unchecked")
 		@Override
 		public synchronized void close() {
 			if (connection.isOpen()) {
-				connection.sync().punsubscribe(pattern);
+				subscription.unsubscribe(connection.sync());
 				connection.removeListener(listener);
 				connection.close();
 			}
@@ -329,29 +772,99 @@ public class KeyNotificationItemReader<K, V> extends AbstractQueuePollableItemRe
 
 	}
 
+	/**
+	 * Subscribes to each upstream node on its own node connection with its own
+	 * listener, so that notifications of different shards are dispatched
+	 * independently. Subscriptions follow cluster topology changes, e.g. after a
+	 * failover or when nodes are added, which requires topology refresh to be
+	 * enabled on the client.
+	 */
 	private static class RedisClusterKeyNotificationPublisher<K, V> implements AutoCloseable {
 
+		private final RedisClusterClient client;
 		private final StatefulRedisClusterPubSubConnection<K, V> connection;
-		private final RedisClusterPubSubListener<K, V> listener;
-		private final K pattern;
+		private final Supplier<RedisPubSubListener<K, V>> listenerSupplier;
+		private final Map<String, RedisPubSubListener<K, V>> nodeListeners = new LinkedHashMap<>();
+		private final Subscription<K> subscription;
+		private final Disposable topologyChanges;
 
-		@SuppressWarnings("unchecked")
 		public RedisClusterKeyNotificationPublisher(RedisClusterClient client, RedisCodec<K, V> codec,
-				RedisClusterPubSubListener<K, V> listener, K pattern) {
+				Supplier<RedisPubSubListener<K, V>> listenerSupplier, Subscription<K> subscription) {
+			this.client = client;
 			this.connection = client.connectPubSub(codec);
-			this.listener = listener;
-			this.pattern = pattern;
-			this.connection.setNodeMessagePropagation(true);
-			this.connection.addListener(listener);
-			this.connection.sync().upstream().commands().psubscribe(pattern);
+			this.listenerSupplier = listenerSupplier;
+			this.subscription = subscription;
+			for (RedisClusterNode node : client.getPartitions()) {
+				if (node.is(NodeFlag.UPSTREAM)) {
+					subscribe(node.getNodeId());
+				}
+			}
+			this.topologyChanges = client.getResources().eventBus().get()
+					.filter(ClusterTopologyChangedEvent.class::isInstance).publishOn(Schedulers.boundedElastic())
+					.subscribe(e -> refresh());
+		}
+
+		/**
+		 * Subscribes to upstream nodes that are not subscribed to yet and
+		 * unsubscribes from nodes that are no longer upstream. Nodes that cannot be
+		 * subscribed to are retried on the next topology change.
+		 */
+		private synchronized void refresh() {
+			if (!connection.isOpen()) {
+				return;
+			}
+			Set<String> upstreams = new HashSet<>();
+			for (RedisClusterNode node : client.getPartitions()) {
+				if (node.is(NodeFlag.UPSTREAM)) {
+					upstreams.add(node.getNodeId());
+					if (!nodeListeners.containsKey(node.getNodeId())) {
+						try {
+							subscribe(node.getNodeId());
+						} catch (RedisException e) {
+							// Retried on next topology change
+						}
+					}
+				}
+			}
+			Iterator<Map.Entry<String, RedisPubSubListener<K, V>>> iterator = nodeListeners.entrySet().iterator();
+			while (iterator.hasNext()) {
+				Map.Entry<String, RedisPubSubListener<K, V>> entry = iterator.next();
+				if (!upstreams.contains(entry.getKey())) {
+					unsubscribe(entry.getKey(), entry.getValue());
+					iterator.remove();
+				}
+			}
+		}
+
+		private void subscribe(String nodeId) {
+			StatefulRedisPubSubConnection<K, V> nodeConnection = connection.getConnection(nodeId);
+			RedisPubSubListener<K, V> listener = listenerSupplier.get();
+			nodeConnection.addListener(listener);
+			try {
+				subscription.subscribe(nodeConnection.sync());
+			} catch (RedisException e) {
+				nodeConnection.removeListener(listener);
+				throw e;
+			}
+			nodeListeners.put(nodeId, listener);
+		}
+
+		private void unsubscribe(String nodeId, RedisPubSubListener<K, V> listener) {
+			try {
+				StatefulRedisPubSubConnection<K, V> nodeConnection = connection.getConnection(nodeId);
+				nodeConnection.removeListener(listener);
+				subscription.unsubscribe(nodeConnection.sync());
+			} catch (RedisException e) {
+				// Node left the cluster or is unreachable, its connection is closed
+			}
 		}
 
-		@SuppressWarnings("unchecked")
 		@Override
 		public synchronized void close() throws Exception {
+			topologyChanges.dispose();
 			if (connection.isOpen()) {
-				connection.sync().upstream().commands().punsubscribe(pattern);
-				connection.removeListener(listener);
+				nodeListeners.forEach(this::unsubscribe);
+				nodeListeners.clear();
 				connection.close();
 			}
 		}
@@ -0,0 +1,86 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+
+import com.redis.lettucemod.timeseries.Sample;
+import com.redis.spring.batch.item.redis.common.KeyValue;
+
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Estimates the heap size in bytes of key/values, e.g. to bound the memory
+ * used by reader queues. The memory usage reported by Redis is used when it was
+ * read, otherwise the size is estimated from the key and value: strings and
+ * byte arrays count their length and collections the sum of their elements,
+ * plus a fixed overhead per object.
+ */
+public abstract class KeyValueSizeEstimator {
+
+	private static final long OBJECT_OVERHEAD = 16;
+	private static final long NUMBER_SIZE = 8;
+
+	private KeyValueSizeEstimator() {
+	}
+
+	/**
+	 *
+	 * @return estimated size in bytes of the given item
+	 */
+	public static long estimate(Object item) {
+		if (item instanceof MemKeyValue && ((MemKeyValue<?, ?>) item).getMem() > 0) {
+			return ((MemKeyValue<?, ?>) item).getMem();
+		}
+		if (item instanceof KeyValue) {
+			KeyValue<?, ?> keyValue = (KeyValue<?, ?>) item;
+			return OBJECT_OVERHEAD + size(keyValue.getKey()) + size(keyValue.getValue());
+		}
+		return size(item);
+	}
+
+	private static long size(Object object) {
+		if (object == null) {
+			return 0;
+		}
+		if (object instanceof byte[]) {
+			return OBJECT_OVERHEAD + ((byte[]) object).length;
+		}
+		if (object instanceof CharSequence) {
+			return OBJECT_OVERHEAD + ((CharSequence) object).length();
+		}
+		if (object instanceof ByteBuffer) {
+			return OBJECT_OVERHEAD + ((ByteBuffer) object).remaining();
+		}
+		if (object instanceof Number) {
+			return OBJECT_OVERHEAD + NUMBER_SIZE;
+		}
+		if (object instanceof Map) {
+			long size = OBJECT_OVERHEAD;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+				size += OBJECT_OVERHEAD + size(entry.getKey()) + size(entry.getValue());
+			}
+			return size;
+		}
+		if (object instanceof Collection) {
+			long size = OBJECT_OVERHEAD;
+			for (Object element : (Collection<?>) object) {
+				size += size(element);
+			}
+			return size;
+		}
+		if (object instanceof ScoredValue) {
+			return OBJECT_OVERHEAD + NUMBER_SIZE + size(((ScoredValue<?>) object).getValue());
+		}
+		if (object instanceof StreamMessage) {
+			StreamMessage<?, ?> message = (StreamMessage<?, ?>) object;
+			return OBJECT_OVERHEAD + size(message.getId()) + size(message.getBody());
+		}
+		if (object instanceof Sample) {
+			return OBJECT_OVERHEAD + 2 * NUMBER_SIZE;
+		}
+		return OBJECT_OVERHEAD;
+	}
+
+}
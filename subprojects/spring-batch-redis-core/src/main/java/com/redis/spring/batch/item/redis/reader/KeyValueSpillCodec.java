@@ -0,0 +1,210 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.batch.item.ItemStreamException;
+
+import com.redis.lettucemod.timeseries.Sample;
+import com.redis.spring.batch.item.SpillCodec;
+import com.redis.spring.batch.item.redis.common.KeyValue;
+
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.StreamMessage;
+
+/**
+ * Compact binary encoding of the key/values spilled by reader queues. Keys and
+ * values are written as tagged values so that both string and byte array
+ * codecs and all data structure values are supported: strings, byte arrays,
+ * numbers, lists, sets, maps, scored values, stream messages and time-series
+ * samples. Items are decoded as {@link MemKeyValue} instances.
+ */
+public class KeyValueSpillCodec<T> implements SpillCodec<T> {
+
+	private static final byte NULL = 0;
+	private static final byte BYTES = 1;
+	private static final byte STRING = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte LIST = 5;
+	private static final byte SET = 6;
+	private static final byte MAP = 7;
+	private static final byte SCORED_VALUE = 8;
+	private static final byte STREAM_MESSAGE = 9;
+	private static final byte SAMPLE = 10;
+	private static final byte INTEGER = 11;
+
+	@Override
+	public byte[] encode(T item) {
+		KeyValue<?, ?> keyValue = (KeyValue<?, ?>) item;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			write(out, keyValue.getKey());
+			out.writeUTF(keyValue.getType() == null ? "" : keyValue.getType());
+			out.writeLong(keyValue.getTtl());
+			out.writeLong(item instanceof MemKeyValue ? ((MemKeyValue<?, ?>) item).getMem() : 0);
+			out.writeInt(keyValue.getDatabase());
+			out.writeBoolean(keyValue.isAppend());
+			write(out, keyValue.getValue());
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not encode key/value", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T decode(byte[] bytes) {
+		MemKeyValue<Object, Object> keyValue = new MemKeyValue<>();
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			keyValue.setKey(read(in));
+			String type = in.readUTF();
+			keyValue.setType(type.isEmpty() ? null : type);
+			keyValue.setTtl(in.readLong());
+			keyValue.setMem(in.readLong());
+			keyValue.setDatabase(in.readInt());
+			keyValue.setAppend(in.readBoolean());
+			keyValue.setValue(read(in));
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not decode key/value", e);
+		}
+		return (T) keyValue;
+	}
+
+	private static void write(DataOutputStream out, Object object) throws IOException {
+		if (object == null) {
+			out.writeByte(NULL);
+		} else if (object instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes(out, (byte[]) object);
+		} else if (object instanceof ByteBuffer) {
+			ByteBuffer buffer = ((ByteBuffer) object).duplicate();
+			byte[] array = new byte[buffer.remaining()];
+			buffer.get(array);
+			out.writeByte(BYTES);
+			writeBytes(out, array);
+		} else if (object instanceof String) {
+			out.writeByte(STRING);
+			writeBytes(out, ((String) object).getBytes(StandardCharsets.UTF_8));
+		} else if (object instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) object);
+		} else if (object instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) object);
+		} else if (object instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) object);
+		} else if (object instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) object;
+			out.writeByte(MAP);
+			out.writeInt(map.size());
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				write(out, entry.getKey());
+				write(out, entry.getValue());
+			}
+		} else if (object instanceof Collection) {
+			Collection<?> collection = (Collection<?>) object;
+			out.writeByte(object instanceof Set ? SET : LIST);
+			out.writeInt(collection.size());
+			for (Object element : collection) {
+				write(out, element);
+			}
+		} else if (object instanceof ScoredValue) {
+			ScoredValue<?> scoredValue = (ScoredValue<?>) object;
+			out.writeByte(SCORED_VALUE);
+			out.writeDouble(scoredValue.getScore());
+			write(out, scoredValue.getValue());
+		} else if (object instanceof StreamMessage) {
+			StreamMessage<?, ?> message = (StreamMessage<?, ?>) object;
+			out.writeByte(STREAM_MESSAGE);
+			write(out, message.getStream());
+			write(out, message.getId());
+			write(out, message.getBody());
+		} else if (object instanceof Sample) {
+			Sample sample = (Sample) object;
+			out.writeByte(SAMPLE);
+			out.writeLong(sample.getTimestamp());
+			out.writeDouble(sample.getValue());
+		} else {
+			throw new IllegalArgumentException("Unsupported value type: " + object.getClass().getName());
+		}
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static Object read(DataInputStream in) throws IOException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case BYTES:
+			return readBytes(in);
+		case STRING:
+			return new String(readBytes(in), StandardCharsets.UTF_8);
+		case INTEGER:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case DOUBLE:
+			return in.readDouble();
+		case MAP:
+			int mapSize = in.readInt();
+			Map<Object, Object> map = new LinkedHashMap<>(mapSize * 4 / 3 + 1);
+			for (int index = 0; index < mapSize; index++) {
+				map.put(read(in), read(in));
+			}
+			return map;
+		case LIST:
+			int listSize = in.readInt();
+			List<Object> list = new ArrayList<>(listSize);
+			for (int index = 0; index < listSize; index++) {
+				list.add(read(in));
+			}
+			return list;
+		case SET:
+			int setSize = in.readInt();
+			Set<Object> set = new LinkedHashSet<>(setSize * 4 / 3 + 1);
+			for (int index = 0; index < setSize; index++) {
+				set.add(read(in));
+			}
+			return set;
+		case SCORED_VALUE:
+			double score = in.readDouble();
+			return ScoredValue.just(score, read(in));
+		case STREAM_MESSAGE:
+			Object stream = read(in);
+			String id = (String) read(in);
+			@SuppressWarnings("unchecked")
+			Map<Object, Object> body = (Map<Object, Object>) read(in);
+			return new StreamMessage<>(stream, id, body);
+		case SAMPLE:
+			long timestamp = in.readLong();
+			return Sample.of(timestamp, in.readDouble());
+		default:
+			throw new IOException("Unknown value tag: " + tag);
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+}
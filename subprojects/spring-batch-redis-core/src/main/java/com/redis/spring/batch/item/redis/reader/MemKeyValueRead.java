@@ -1,5 +1,6 @@
 package com.redis.spring.batch.item.redis.reader;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -11,6 +12,7 @@ import com.redis.lettucemod.api.StatefulRedisModulesConnection;
 import com.redis.lettucemod.util.RedisModulesUtils;
 import com.redis.spring.batch.item.redis.common.BatchUtils;
 import com.redis.spring.batch.item.redis.common.InitializingOperation;
+import com.redis.spring.batch.item.redis.common.KeyValue;
 
 import io.lettuce.core.AbstractRedisClient;
 import io.lettuce.core.RedisFuture;
@@ -40,6 +42,7 @@ public class MemKeyValueRead<K, V, T> implements InitializingOperation<K, V, K,
 	private DataSize memUsageLimit = DEFAULT_MEM_USAGE_LIMIT;
 	private int memUsageSamples = DEFAULT_MEM_USAGE_SAMPLES;
 	private ValueType type = DEFAULT_TYPE;
+	private Function<K, AppendTracker.Position> positionFunction;
 
 	public MemKeyValueRead(RedisCodec<K, V> codec, Function<List<Object>, MemKeyValue<K, T>> function) {
 		this.codec = codec;
@@ -54,7 +57,13 @@ public class MemKeyValueRead<K, V, T> implements InitializingOperation<K, V, K,
 	@Override
 	public void afterPropertiesSet() throws Exception {
 		Assert.notNull(client, "Redis client not set");
-		evalsha.setArgs(evalShaArgs());
+		if (positionFunction == null) {
+			evalsha.setArgs(evalShaArgs());
+		} else {
+			Object[] args = evalShaArgs();
+			Function<String, V> stringValueFunction = BatchUtils.stringValueFunction(codec);
+			evalsha.setArgsFunction(key -> positionArgs(key, args, stringValueFunction));
+		}
 		String lua = BatchUtils.readFile(SCRIPT_FILENAME);
 		try (StatefulRedisModulesConnection<K, V> connection = RedisModulesUtils.connection(client, codec)) {
 			String digest = connection.sync().scriptLoad(lua);
@@ -68,6 +77,22 @@ public class MemKeyValueRead<K, V, T> implements InitializingOperation<K, V, K,
 		return new Object[] { typeArg, memLimitArg, memUsageSamples };
 	}
 
+	@SuppressWarnings("unchecked")
+	private V[] positionArgs(K key, Object[] args, Function<String, V> stringValueFunction) {
+		AppendTracker.Position position = positionFunction.apply(key);
+		Object[] keyArgs = args;
+		if (position != null) {
+			keyArgs = Arrays.copyOf(args, args.length + 2);
+			keyArgs[args.length] = position.getType();
+			keyArgs[args.length + 1] = position.getFrom();
+		}
+		V[] encodedArgs = (V[]) new Object[keyArgs.length];
+		for (int index = 0; index < keyArgs.length; index++) {
+			encodedArgs[index] = stringValueFunction.apply(String.valueOf(keyArgs[index]));
+		}
+		return encodedArgs;
+	}
+
 	@Override
 	public List<RedisFuture<MemKeyValue<K, T>>> execute(RedisAsyncCommands<K, V> commands,
 			Iterable<? extends K> items) {
@@ -75,6 +100,16 @@ public class MemKeyValueRead<K, V, T> implements InitializingOperation<K, V, K,
 		return evalOutputs.stream().map(f -> new MappingRedisFuture<>(f, function)).collect(Collectors.toList());
 	}
 
+	/**
+	 * 
+	 * @param key key that no longer exists
+	 * @return the key/value this operation returns for a key that does not exist,
+	 *         without querying Redis
+	 */
+	public MemKeyValue<K, T> missing(K key) {
+		return function.apply(Arrays.asList(key, KeyValue.TTL_NO_KEY));
+	}
+
 	public DataSize getMemUsageLimit() {
 		return memUsageLimit;
 	}
@@ -91,6 +126,20 @@ public class MemKeyValueRead<K, V, T> implements InitializingOperation<K, V, K,
 		this.memUsageSamples = samples;
 	}
 
+	/**
+	 * 
+	 * @param function returns the position from which to read a key in struct
+	 *                 mode, or null to read the key entirely. Must be set before
+	 *                 this operation is initialized.
+	 */
+	public void setPositionFunction(Function<K, AppendTracker.Position> function) {
+		this.positionFunction = function;
+	}
+
+	public ValueType getType() {
+		return type;
+	}
+
 	public void setType(ValueType type) {
 		this.type = type;
 	}
@@ -0,0 +1,63 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Records keys whose notifications could not be queued so that they can be
+ * read later. Up to a given number of distinct keys are kept; beyond that the
+ * individual keys are discarded and a rescan of the keyspace is requested
+ * instead.
+ */
+public class OverflowTracker<K> {
+
+	private final int capacity;
+	private final Set<Wrapper<K>> keys = new LinkedHashSet<>();
+
+	private boolean rescan;
+
+	public OverflowTracker(int capacity) {
+		this.capacity = capacity;
+	}
+
+	public synchronized void add(K key) {
+		if (rescan) {
+			return;
+		}
+		keys.add(new Wrapper<>(key));
+		if (keys.size() > capacity) {
+			keys.clear();
+			rescan = true;
+		}
+	}
+
+	/**
+	 * 
+	 * @return the oldest dropped key, or null if there is none
+	 */
+	public synchronized K poll() {
+		Iterator<Wrapper<K>> iterator = keys.iterator();
+		if (iterator.hasNext()) {
+			K key = iterator.next().getValue();
+			iterator.remove();
+			return key;
+		}
+		return null;
+	}
+
+	/**
+	 * 
+	 * @return true if a rescan was requested since the last call to this method
+	 */
+	public synchronized boolean takeRescan() {
+		boolean result = rescan;
+		rescan = false;
+		return result;
+	}
+
+	public synchronized boolean isEmpty() {
+		return keys.isEmpty() && !rescan;
+	}
+
+}
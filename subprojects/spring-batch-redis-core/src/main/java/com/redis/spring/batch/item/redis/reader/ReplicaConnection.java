@@ -0,0 +1,235 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.SslOptions;
+import io.lettuce.core.SslVerifyMode;
+import io.netty.handler.ssl.JdkSslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+
+/**
+ * Connection to a Redis server acting as a replica: sends commands as RESP
+ * arrays and reads the replication stream, counting the bytes read so that the
+ * replication offset can be tracked.
+ */
+class ReplicaConnection implements AutoCloseable {
+
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	private final Socket socket;
+	private final InputStream in;
+	private final OutputStream out;
+	private long readCount;
+
+	/**
+	 * 
+	 * @param uri        server to connect to. Its timeout bounds connecting and
+	 *                   each read, so it must exceed the master's
+	 *                   repl-ping-replica-period for an idle stream to stay up.
+	 * @param sslOptions trust and key material used when the URI requires SSL,
+	 *                   typically those of the Redis client
+	 */
+	public ReplicaConnection(RedisURI uri, SslOptions sslOptions) throws IOException {
+		int timeout = (int) uri.getTimeout().toMillis();
+		Socket plainSocket = new Socket();
+		plainSocket.setKeepAlive(true);
+		plainSocket.setTcpNoDelay(true);
+		plainSocket.setSoTimeout(timeout);
+		try {
+			plainSocket.connect(new InetSocketAddress(uri.getHost(), uri.getPort()), timeout);
+			this.socket = uri.isSsl() ? sslSocket(plainSocket, uri, sslOptions) : plainSocket;
+		} catch (IOException e) {
+			plainSocket.close();
+			throw e;
+		}
+		this.in = new BufferedInputStream(socket.getInputStream());
+		this.out = new BufferedOutputStream(socket.getOutputStream());
+	}
+
+	/**
+	 * Layers TLS over the given connected socket the way the Redis client does:
+	 * trust and key material come from the SSL options, and the peer is only
+	 * verified if the URI requires it.
+	 */
+	private static Socket sslSocket(Socket socket, RedisURI uri, SslOptions sslOptions) throws IOException {
+		SslContextBuilder builder = sslOptions.createSslContextBuilder().sslProvider(SslProvider.JDK);
+		if (!uri.isVerifyPeer()) {
+			builder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+		}
+		SSLContext context = ((JdkSslContext) builder.build()).context();
+		SSLSocket sslSocket = (SSLSocket) context.getSocketFactory().createSocket(socket, uri.getHost(), uri.getPort(),
+				true);
+		SSLParameters parameters = sslOptions.createSSLParameters();
+		if (uri.getVerifyMode() == SslVerifyMode.FULL) {
+			parameters.setEndpointIdentificationAlgorithm("HTTPS");
+		}
+		sslSocket.setSSLParameters(parameters);
+		sslSocket.startHandshake();
+		return sslSocket;
+	}
+
+	/**
+	 * Sends the given command and returns its status reply.
+	 *
+	 * @throws RedisCommandExecutionException if the reply is an error
+	 */
+	public String command(String... args) throws IOException {
+		send(args);
+		String reply;
+		do {
+			reply = readLine();
+		} while (reply.isEmpty());
+		if (reply.charAt(0) == '-') {
+			throw new RedisCommandExecutionException(reply.substring(1));
+		}
+		return reply.substring(1);
+	}
+
+	public synchronized void send(String... args) throws IOException {
+		out.write('*');
+		out.write(ascii(args.length));
+		out.write(CRLF);
+		for (String arg : args) {
+			byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+			out.write('$');
+			out.write(ascii(bytes.length));
+			out.write(CRLF);
+			out.write(bytes);
+			out.write(CRLF);
+		}
+		out.flush();
+	}
+
+	private static byte[] ascii(long value) {
+		return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Skips the RDB payload sent by the master after a full resynchronization.
+	 * Newlines sent by the master as keep-alives while it produces the payload are
+	 * ignored.
+	 */
+	public void skipRdb() throws IOException {
+		String line;
+		do {
+			line = readLine();
+		} while (line.isEmpty());
+		if (line.charAt(0) != '$' || line.startsWith("$EOF:")) {
+			throw new IOException("Unexpected RDB payload header: " + line);
+		}
+		long length = Long.parseLong(line.substring(1));
+		while (length > 0) {
+			long skipped = in.skip(length);
+			if (skipped <= 0) {
+				read();
+				skipped = 1;
+			}
+			length -= skipped;
+		}
+	}
+
+	/**
+	 * Reads the next command of the replication stream.
+	 *
+	 * @return command name followed by its arguments
+	 */
+	public List<byte[]> readCommand() throws IOException {
+		int type;
+		do {
+			type = read();
+		} while (type == '\n');
+		if (type != '*') {
+			throw new IOException("Unexpected replication stream type: " + (char) type);
+		}
+		int count = (int) readLong();
+		List<byte[]> args = new ArrayList<>(count);
+		for (int index = 0; index < count; index++) {
+			if (read() != '$') {
+				throw new IOException("Expected bulk string in replication stream");
+			}
+			byte[] arg = new byte[(int) readLong()];
+			int offset = 0;
+			while (offset < arg.length) {
+				int length = in.read(arg, offset, arg.length - offset);
+				if (length < 0) {
+					throw new EOFException();
+				}
+				offset += length;
+			}
+			readCount += arg.length;
+			read();
+			read();
+			args.add(arg);
+		}
+		return args;
+	}
+
+	/**
+	 *
+	 * @return number of bytes read since the last call
+	 */
+	public long takeReadCount() {
+		long count = readCount;
+		readCount = 0;
+		return count;
+	}
+
+	private long readLong() throws IOException {
+		long value = 0;
+		boolean negative = false;
+		int b;
+		while ((b = read()) != '\r') {
+			if (b == '-') {
+				negative = true;
+			} else {
+				value = value * 10 + (b - '0');
+			}
+		}
+		read();
+		return negative ? -value : value;
+	}
+
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		int b;
+		while ((b = read()) != '\n') {
+			if (b != '\r') {
+				line.append((char) b);
+			}
+		}
+		return line.toString();
+	}
+
+	private int read() throws IOException {
+		int b = in.read();
+		if (b < 0) {
+			throw new EOFException();
+		}
+		readCount++;
+		return b;
+	}
+
+	@Override
+	public void close() throws IOException {
+		socket.close();
+	}
+
+}
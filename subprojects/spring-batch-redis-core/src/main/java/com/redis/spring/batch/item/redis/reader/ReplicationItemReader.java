@@ -0,0 +1,536 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.ClassUtils;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.spring.batch.item.AbstractPollableItemReader;
+import com.redis.spring.batch.item.redis.common.BatchUtils;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanIterator;
+import io.lettuce.core.SslOptions;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * Reads keys from the replication stream of a standalone Redis server. The
+ * reader connects as a replica (REPLCONF/PSYNC), skips the RDB payload of the
+ * initial synchronization and queues the keys of the write commands that
+ * follow, with the command name as event.
+ * <p>
+ * The replication offset is acknowledged as commands are queued. When the
+ * queue is full the stream is not read until capacity frees up, and after a
+ * disconnect the reader resumes from the last queued command with a partial
+ * resynchronization when the master backlog allows it. Otherwise the master
+ * performs a full resynchronization whose RDB payload is skipped too, so the
+ * keyspace is rescanned with the client of this reader to queue the keys that
+ * may have changed during the disconnect.
+ * <p>
+ * The replication offset is not persisted: a reader that is opened again, e.g.
+ * after a restart, only reads changes made from then on.
+ */
+public class ReplicationItemReader<K, V> extends AbstractPollableItemReader<KeyEvent<K>> {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = KeyNotificationItemReader.DEFAULT_QUEUE_CAPACITY;
+	public static final Duration DEFAULT_ACK_INTERVAL = Duration.ofSeconds(1);
+	public static final Duration DEFAULT_RECONNECT_DELAY = Duration.ofSeconds(1);
+
+	private static final String DEL_EVENT = "del";
+	private static final String UNKNOWN_REPLICATION_ID = "?";
+	private static final int RESCAN_COUNT = 1000;
+
+	private final Log log = LogFactory.getLog(getClass());
+
+	private final RedisURI uri;
+	private final RedisCodec<K, V> codec;
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int database;
+	private String keyPattern;
+	private Duration coalescingWindow = KeyNotificationItemReader.DEFAULT_COALESCING_WINDOW;
+	private Duration ackInterval = DEFAULT_ACK_INTERVAL;
+	private Duration reconnectDelay = DEFAULT_RECONNECT_DELAY;
+	private SslOptions sslOptions = SslOptions.create();
+	private AbstractRedisClient client;
+
+	private UniqueKeyQueue<K> queue;
+	private byte[] pattern;
+	private Thread thread;
+	private ExecutorService rescanExecutor;
+	private volatile boolean running;
+	private volatile ReplicaConnection connection;
+	private String replicationId = UNKNOWN_REPLICATION_ID;
+	private long offset = -1;
+	private int selectedDatabase;
+	private long lastAck;
+	private boolean ackRequested;
+
+	public ReplicationItemReader(RedisURI uri, RedisCodec<K, V> codec) {
+		setName(ClassUtils.getShortName(getClass()));
+		this.uri = uri;
+		this.codec = codec;
+	}
+
+	@Override
+	public boolean isComplete() {
+		return thread == null;
+	}
+
+	@Override
+	protected synchronized void doOpen() throws Exception {
+		if (thread == null) {
+			queue = new UniqueKeyQueue<>(queueCapacity);
+			queue.setDelay(coalescingWindow);
+			queue.setEventFunction(AppendTracker::combineEvents);
+			pattern = keyPattern == null ? null : keyPattern.getBytes(StandardCharsets.UTF_8);
+			running = true;
+			rescanExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread rescanThread = new Thread(r, getName() + "-rescan");
+				rescanThread.setDaemon(true);
+				return rescanThread;
+			});
+			thread = new Thread(this::replicate, getName());
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	@Override
+	protected synchronized void doClose() throws Exception {
+		if (thread != null) {
+			running = false;
+			closeConnection();
+			thread.interrupt();
+			thread.join();
+			thread = null;
+			rescanExecutor.shutdownNow();
+			rescanExecutor = null;
+		}
+		replicationId = UNKNOWN_REPLICATION_ID;
+		offset = -1;
+	}
+
+	@Override
+	protected KeyEvent<K> doPoll(long timeout, TimeUnit unit) throws InterruptedException {
+		return queue.pollEvent(timeout, unit);
+	}
+
+	/**
+	 *
+	 * @return the queue of keys read from the replication stream, or null if the
+	 *         reader is not open
+	 */
+	public UniqueKeyQueue<K> getQueue() {
+		return queue;
+	}
+
+	private void replicate() {
+		while (running) {
+			try {
+				connection = new ReplicaConnection(uri, sslOptions);
+				handshake();
+				while (running) {
+					List<byte[]> command = connection.readCommand();
+					long length = connection.takeReadCount();
+					// Offset only covers commands whose keys are queued
+					process(command);
+					offset += length;
+					if (ackRequested || System.nanoTime() - lastAck >= ackInterval.toNanos()) {
+						ack();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception e) {
+				if (!running) {
+					return;
+				}
+				log.warn(String.format("Replication from %s:%s failed, reconnecting", uri.getHost(), uri.getPort()),
+						e);
+				closeConnection();
+				try {
+					Thread.sleep(reconnectDelay.toMillis());
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private void handshake() throws IOException {
+		if (uri.getPassword() != null) {
+			String password = new String(uri.getPassword());
+			if (uri.getUsername() == null) {
+				connection.command("AUTH", password);
+			} else {
+				connection.command("AUTH", uri.getUsername(), password);
+			}
+		}
+		connection.command("REPLCONF", "capa", "psync2");
+		String reply = connection.command("PSYNC", replicationId, String.valueOf(offset < 0 ? -1 : offset + 1));
+		String[] fields = reply.split(" ");
+		if ("FULLRESYNC".equals(fields[0])) {
+			if (offset >= 0) {
+				rescan();
+			}
+			replicationId = fields[1];
+			offset = Long.parseLong(fields[2]);
+			connection.skipRdb();
+		} else if ("CONTINUE".equals(fields[0])) {
+			if (fields.length > 1) {
+				replicationId = fields[1];
+			}
+		} else {
+			throw new IOException("Unexpected PSYNC reply: " + reply);
+		}
+		connection.takeReadCount();
+		lastAck = System.nanoTime();
+	}
+
+	/**
+	 * Queues all keys of the database in the background, as changes made since
+	 * the disconnect are only part of the skipped RDB payload. Changes
+	 * replicated meanwhile keep being queued.
+	 */
+	private void rescan() {
+		if (client == null) {
+			log.warn("Partial resynchronization was not possible and no client is set to rescan keys, "
+					+ "changes since disconnect may be missed");
+			return;
+		}
+		log.info("Partial resynchronization was not possible, rescanning keys");
+		rescanExecutor.execute(() -> {
+			try (StatefulRedisModulesConnection<K, V> scanConnection = BatchUtils.connection(client, codec, null)) {
+				if (database != 0) {
+					scanConnection.sync().select(database);
+				}
+				KeyScanArgs args = KeyScanArgs.Builder.limit(RESCAN_COUNT);
+				if (keyPattern != null) {
+					args.match(keyPattern);
+				}
+				ScanIterator<K> iterator = ScanIterator.scan(scanConnection.sync(), args);
+				while (running && iterator.hasNext()) {
+					queue.put(iterator.next());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (RedisException e) {
+				log.warn("Rescan failed, changes since disconnect may be missed", e);
+			}
+		});
+	}
+
+	private void ack() throws IOException {
+		connection.send("REPLCONF", "ACK", String.valueOf(offset));
+		lastAck = System.nanoTime();
+		ackRequested = false;
+	}
+
+	private void process(List<byte[]> args) throws InterruptedException {
+		String command = new String(args.get(0), StandardCharsets.US_ASCII).toLowerCase(Locale.ROOT);
+		switch (command) {
+		case "select":
+			selectedDatabase = Integer.parseInt(new String(args.get(1), StandardCharsets.US_ASCII));
+			break;
+		case "replconf":
+			ackRequested = args.size() > 1
+					&& "getack".equalsIgnoreCase(new String(args.get(1), StandardCharsets.US_ASCII));
+			break;
+		case "move":
+			// Key leaves the selected database for the one given as argument
+			offer(selectedDatabase, args.get(1), DEL_EVENT);
+			offer(Integer.parseInt(new String(args.get(2), StandardCharsets.US_ASCII)), args.get(1), command);
+			break;
+		case "ping":
+		case "multi":
+		case "exec":
+		case "publish":
+		case "spublish":
+		case "script":
+		case "function":
+		case "swapdb":
+			break;
+		case "flushdb":
+		case "flushall":
+			log.warn(String.format("Ignoring %s: keys deleted by flush commands are not replicated", command));
+			break;
+		default:
+			offerKeys(command, args);
+			break;
+		}
+	}
+
+	private void offerKeys(String command, List<byte[]> args) throws InterruptedException {
+		switch (command) {
+		case "del":
+		case "unlink":
+			offerRange(args, 1, args.size(), 1, DEL_EVENT);
+			break;
+		case "mset":
+		case "msetnx":
+			offerRange(args, 1, args.size(), 2, command);
+			break;
+		case "json.mset":
+		case "ts.madd":
+			offerRange(args, 1, args.size(), 3, command);
+			break;
+		case "rename":
+		case "renamenx":
+			offer(selectedDatabase, args.get(1), DEL_EVENT);
+			offer(selectedDatabase, args.get(2), command);
+			break;
+		case "copy":
+		case "smove":
+		case "lmove":
+		case "blmove":
+		case "rpoplpush":
+		case "brpoplpush":
+			offerRange(args, 1, 3, 1, command);
+			break;
+		case "xgroup":
+		case "bitop":
+			offerRange(args, 2, 3, 1, command);
+			break;
+		case "lmpop":
+		case "zmpop":
+		case "eval":
+		case "evalsha":
+		case "fcall":
+			offerNumKeys(args, 2, command);
+			break;
+		case "blmpop":
+		case "bzmpop":
+			offerNumKeys(args, 3, command);
+			break;
+		default:
+			offerRange(args, 1, 2, 1, command);
+			break;
+		}
+	}
+
+	/**
+	 * Offers the keys following a key count found right before the given index.
+	 */
+	private void offerNumKeys(List<byte[]> args, int start, String command) throws InterruptedException {
+		if (args.size() > start) {
+			int count = Integer.parseInt(new String(args.get(start - 1), StandardCharsets.US_ASCII));
+			offerRange(args, start, start + count, 1, command);
+		}
+	}
+
+	private void offerRange(List<byte[]> args, int start, int end, int step, String command)
+			throws InterruptedException {
+		for (int index = start; index < Math.min(end, args.size()); index += step) {
+			offer(selectedDatabase, args.get(index), command);
+		}
+	}
+
+	/**
+	 * Queues the given key, waiting for capacity so that the replication stream is
+	 * not read further while the queue is full. Acknowledgements keep being sent
+	 * while waiting.
+	 */
+	private void offer(int keyDatabase, byte[] key, String event) throws InterruptedException {
+		if (keyDatabase != database || (pattern != null && !matches(pattern, 0, key, 0))) {
+			return;
+		}
+		K decodedKey = key(key);
+		while (queue.tryOffer(decodedKey, event, ackInterval.toNanos(),
+				TimeUnit.NANOSECONDS) == UniqueKeyQueue.Result.FULL) {
+			try {
+				ack();
+			} catch (IOException e) {
+				// Connection failure is surfaced by the next read
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private K key(byte[] bytes) {
+		if (codec instanceof ByteArrayCodec) {
+			return (K) bytes;
+		}
+		return codec.decodeKey(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Glob-style matching as done by the KEYS and SCAN commands: supports *, ?,
+	 * [...] with ranges and negation, and \ to escape special characters.
+	 */
+	private static boolean matches(byte[] pattern, int p, byte[] key, int k) {
+		while (p < pattern.length) {
+			switch (pattern[p]) {
+			case '*':
+				while (p + 1 < pattern.length && pattern[p + 1] == '*') {
+					p++;
+				}
+				if (p + 1 == pattern.length) {
+					return true;
+				}
+				for (int index = k; index <= key.length; index++) {
+					if (matches(pattern, p + 1, key, index)) {
+						return true;
+					}
+				}
+				return false;
+			case '?':
+				if (k == key.length) {
+					return false;
+				}
+				k++;
+				break;
+			case '[':
+				if (k == key.length) {
+					return false;
+				}
+				int end = p + 1;
+				boolean not = end < pattern.length && pattern[end] == '^';
+				if (not) {
+					end++;
+				}
+				boolean match = false;
+				while (end < pattern.length && pattern[end] != ']') {
+					if (pattern[end] == '\\' && end + 1 < pattern.length) {
+						end++;
+						match |= pattern[end] == key[k];
+					} else if (end + 2 < pattern.length && pattern[end + 1] == '-' && pattern[end + 2] != ']') {
+						int low = Math.min(pattern[end] & 0xFF, pattern[end + 2] & 0xFF);
+						int high = Math.max(pattern[end] & 0xFF, pattern[end + 2] & 0xFF);
+						match |= (key[k] & 0xFF) >= low && (key[k] & 0xFF) <= high;
+						end += 2;
+					} else {
+						match |= pattern[end] == key[k];
+					}
+					end++;
+				}
+				if (match == not) {
+					return false;
+				}
+				p = end;
+				k++;
+				break;
+			case '\\':
+				if (p + 1 < pattern.length) {
+					p++;
+				}
+				// fall through to literal match
+			default:
+				if (k == key.length || pattern[p] != key[k]) {
+					return false;
+				}
+				k++;
+				break;
+			}
+			p++;
+		}
+		return k == key.length;
+	}
+
+	private void closeConnection() {
+		ReplicaConnection current = connection;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+			connection = null;
+		}
+	}
+
+	public RedisURI getUri() {
+		return uri;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int capacity) {
+		this.queueCapacity = capacity;
+	}
+
+	public int getDatabase() {
+		return database;
+	}
+
+	public void setDatabase(int database) {
+		this.database = database;
+	}
+
+	public String getKeyPattern() {
+		return keyPattern;
+	}
+
+	public void setKeyPattern(String keyPattern) {
+		this.keyPattern = keyPattern;
+	}
+
+	public Duration getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	public void setCoalescingWindow(Duration window) {
+		this.coalescingWindow = window;
+	}
+
+	public Duration getAckInterval() {
+		return ackInterval;
+	}
+
+	public void setAckInterval(Duration interval) {
+		this.ackInterval = interval;
+	}
+
+	public Duration getReconnectDelay() {
+		return reconnectDelay;
+	}
+
+	public void setReconnectDelay(Duration delay) {
+		this.reconnectDelay = delay;
+	}
+
+	public AbstractRedisClient getClient() {
+		return client;
+	}
+
+	/**
+	 * 
+	 * @param client client of the server replicated from, used to rescan its
+	 *               keys when a partial resynchronization is not possible
+	 */
+	public void setClient(AbstractRedisClient client) {
+		this.client = client;
+	}
+
+	public SslOptions getSslOptions() {
+		return sslOptions;
+	}
+
+	/**
+	 * 
+	 * @param options trust and key material of the replica connection when the
+	 *                URI requires SSL. Defaults to the JDK defaults.
+	 */
+	public void setSslOptions(SslOptions options) {
+		this.sslOptions = options;
+	}
+
+}
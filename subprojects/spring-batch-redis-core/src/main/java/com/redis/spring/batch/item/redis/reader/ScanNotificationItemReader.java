@@ -0,0 +1,180 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.Assert;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.spring.batch.item.AbstractPollableItemReader;
+import com.redis.spring.batch.item.redis.common.BatchUtils;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.ScanIterator;
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * Reads existing keys with SCAN while listening to keyspace notifications or
+ * to the replication stream, so that the snapshot and live phases hand off
+ * without missing or repeating changes.
+ * <p>
+ * Notifications are subscribed to before the scan starts. While scanning, one
+ * notification is read for every {@link #setScanRatio(int) scan ratio} scanned
+ * keys, so that neither starves the other. A key read because of a
+ * notification during the scan is skipped if the scan returns it afterwards:
+ * that read already happened after the key was last modified, and any later
+ * change produces another notification. At most
+ * {@link #setNotifiedKeysCapacity(int) capacity} notified keys are remembered;
+ * beyond that they are forgotten and may be read again by the scan, which is
+ * redundant but not incorrect. Once the scan is finished only notifications
+ * are read.
+ */
+public class ScanNotificationItemReader<K, V> extends AbstractPollableItemReader<KeyEvent<K>> {
+
+	public static final int DEFAULT_SCAN_RATIO = 10;
+	public static final int DEFAULT_NOTIFIED_KEYS_CAPACITY = 100000;
+
+	private final AbstractRedisClient client;
+	private final RedisCodec<K, V> codec;
+	private final AbstractPollableItemReader<KeyEvent<K>> notificationReader;
+	private final Set<Wrapper<K>> notifiedKeys = new HashSet<>();
+
+	private KeyScanArgs scanArgs = new KeyScanArgs();
+	private ReadFrom readFrom;
+	private int scanRatio = DEFAULT_SCAN_RATIO;
+	private int notifiedKeysCapacity = DEFAULT_NOTIFIED_KEYS_CAPACITY;
+	private int scanCount;
+
+	private StatefulRedisModulesConnection<K, V> connection;
+	private ScanIterator<K> scanIterator;
+
+	public ScanNotificationItemReader(AbstractRedisClient client, RedisCodec<K, V> codec,
+			AbstractPollableItemReader<KeyEvent<K>> notificationReader) {
+		this.client = client;
+		this.codec = codec;
+		this.notificationReader = notificationReader;
+	}
+
+	@Override
+	protected synchronized void doOpen() throws Exception {
+		notificationReader.open(new ExecutionContext());
+		if (connection == null) {
+			connection = BatchUtils.connection(client, codec, readFrom);
+			scanIterator = ScanIterator.scan(connection.sync(), scanArgs);
+			scanCount = 0;
+		}
+	}
+
+	@Override
+	protected synchronized void doClose() throws Exception {
+		endScan();
+		notificationReader.close();
+	}
+
+	private void endScan() {
+		scanIterator = null;
+		notifiedKeys.clear();
+		if (connection != null) {
+			connection.close();
+			connection = null;
+		}
+	}
+
+	@Override
+	public boolean isComplete() {
+		return notificationReader.isComplete();
+	}
+
+	@Override
+	protected KeyEvent<K> doPoll(long timeout, TimeUnit unit) throws InterruptedException {
+		KeyEvent<K> scanEvent = pollScan();
+		if (scanEvent != null) {
+			return scanEvent;
+		}
+		return notificationReader.poll(timeout, unit);
+	}
+
+	private synchronized KeyEvent<K> pollScan() throws InterruptedException {
+		if (scanIterator == null) {
+			return null;
+		}
+		if (scanCount >= scanRatio) {
+			scanCount = 0;
+			KeyEvent<K> keyEvent = notificationReader.poll(0, TimeUnit.NANOSECONDS);
+			if (keyEvent != null) {
+				notified(keyEvent.getKey());
+				return keyEvent;
+			}
+		}
+		while (scanIterator.hasNext()) {
+			K key = scanIterator.next();
+			// A key is returned once by the scan so it no longer needs to be remembered
+			if (!notifiedKeys.remove(new Wrapper<>(key))) {
+				scanCount++;
+				return new KeyEvent<>(key, null);
+			}
+		}
+		endScan();
+		return null;
+	}
+
+	private void notified(K key) {
+		if (notifiedKeys.size() >= notifiedKeysCapacity) {
+			notifiedKeys.clear();
+		}
+		notifiedKeys.add(new Wrapper<>(key));
+	}
+
+	public AbstractPollableItemReader<KeyEvent<K>> getNotificationReader() {
+		return notificationReader;
+	}
+
+	public KeyScanArgs getScanArgs() {
+		return scanArgs;
+	}
+
+	public void setScanArgs(KeyScanArgs args) {
+		this.scanArgs = args;
+	}
+
+	public ReadFrom getReadFrom() {
+		return readFrom;
+	}
+
+	public void setReadFrom(ReadFrom readFrom) {
+		this.readFrom = readFrom;
+	}
+
+	public int getScanRatio() {
+		return scanRatio;
+	}
+
+	/**
+	 * 
+	 * @param ratio number of scanned keys read for each notification while the
+	 *              scan is in progress
+	 */
+	public void setScanRatio(int ratio) {
+		Assert.isTrue(ratio > 0, "Scan ratio must be strictly positive");
+		this.scanRatio = ratio;
+	}
+
+	public int getNotifiedKeysCapacity() {
+		return notifiedKeysCapacity;
+	}
+
+	/**
+	 * 
+	 * @param capacity maximum number of keys read from notifications during the
+	 *                 scan that are remembered to skip them when scanned
+	 */
+	public void setNotifiedKeysCapacity(int capacity) {
+		Assert.isTrue(capacity > 0, "Notified keys capacity must be strictly positive");
+		this.notifiedKeysCapacity = capacity;
+	}
+
+}
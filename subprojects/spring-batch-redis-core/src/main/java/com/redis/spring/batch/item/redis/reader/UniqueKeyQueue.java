@@ -0,0 +1,468 @@
+package com.redis.spring.batch.item.redis.reader;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+
+import org.springframework.util.Assert;
+
+/**
+ * Bounded blocking FIFO queue of unique keys. Offering a key that is already
+ * queued leaves the queue unchanged, so each key is stored once until it is
+ * polled. Byte array keys are compared by content.
+ * <p>
+ * Keys are kept in preallocated arrays: a ring buffer holding the keys in
+ * insertion order and an open-addressing index used for duplicate lookups, so
+ * that offering and polling keys does not allocate.
+ * <p>
+ * An optional delay holds back each key until that delay has elapsed since it
+ * was first queued.
+ * <p>
+ * Each queued key also records the last event offered for it, which
+ * {@link #pollEvent(long, TimeUnit)} returns along with the key.
+ */
+public class UniqueKeyQueue<K> extends AbstractQueue<K> implements BlockingQueue<K> {
+
+	public enum Result {
+		ADDED, DUPLICATE, FULL
+	}
+
+	private static final int EMPTY = -1;
+
+	private final int capacity;
+	private final Object[] keys;
+	private final int[] hashes;
+	private final long[] times;
+	private final String[] events;
+	private final int[] index;
+	private final int mask;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	private BinaryOperator<String> eventFunction = (previous, event) -> event;
+	private long delay;
+	private int head;
+	private int count;
+
+	public UniqueKeyQueue(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero");
+		this.capacity = capacity;
+		this.keys = new Object[capacity];
+		this.hashes = new int[capacity];
+		this.times = new long[capacity];
+		this.events = new String[capacity];
+		int size = 2;
+		while (size < capacity * 2) {
+			size <<= 1;
+		}
+		this.index = new int[size];
+		this.mask = size - 1;
+		Arrays.fill(index, EMPTY);
+	}
+
+	/**
+	 *
+	 * @param delay minimum time between the moment a key is first queued and the
+	 *              moment it can be polled
+	 */
+	public void setDelay(Duration delay) {
+		this.delay = delay.toNanos();
+	}
+
+	/**
+	 *
+	 * @param function combines the event of a queued key with a new event
+	 *                 offered for that key. Defaults to keeping the new event.
+	 */
+	public void setEventFunction(BinaryOperator<String> function) {
+		this.eventFunction = function;
+	}
+
+	/**
+	 * Inserts the given key if it is not already queued and capacity allows.
+	 *
+	 * @param key key to insert
+	 * @return result of the insertion
+	 */
+	public Result tryOffer(K key) {
+		return tryOffer(key, null);
+	}
+
+	/**
+	 * Inserts the given key if it is not already queued and capacity allows. If
+	 * the key is already queued its event is combined with the given one.
+	 *
+	 * @param key   key to insert
+	 * @param event event that caused the insertion, can be null
+	 * @return result of the insertion
+	 */
+	public Result tryOffer(K key, String event) {
+		Assert.notNull(key, "Key must not be null");
+		int hash = hash(key);
+		lock.lock();
+		try {
+			return insert(key, hash, event);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Inserts the given key if it is not already queued, waiting up to the
+	 * specified wait time if necessary for capacity to become available. If the
+	 * key is already queued its event is combined with the given one.
+	 *
+	 * @param key   key to insert
+	 * @param event event that caused the insertion, can be null
+	 * @return result of the insertion, {@link Result#FULL} if the specified
+	 *         waiting time elapses before capacity is available
+	 */
+	public Result tryOffer(K key, String event, long timeout, TimeUnit unit) throws InterruptedException {
+		Assert.notNull(key, "Key must not be null");
+		int hash = hash(key);
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			Result result;
+			while ((result = insert(key, hash, event)) == Result.FULL && nanos > 0) {
+				nanos = notFull.awaitNanos(nanos);
+			}
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Result insert(K key, int hash, String event) {
+		int slot = slot(key, hash);
+		if (slot != EMPTY) {
+			int position = index[slot];
+			events[position] = eventFunction.apply(events[position], event);
+			return Result.DUPLICATE;
+		}
+		if (count == capacity) {
+			return Result.FULL;
+		}
+		enqueue(key, hash);
+		events[(head + count - 1) % capacity] = event;
+		return Result.ADDED;
+	}
+
+	@Override
+	public boolean offer(K key) {
+		return tryOffer(key) == Result.ADDED;
+	}
+
+	@Override
+	public boolean offer(K key, long timeout, TimeUnit unit) throws InterruptedException {
+		Assert.notNull(key, "Key must not be null");
+		int hash = hash(key);
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (slot(key, hash) == EMPTY) {
+				if (count < capacity) {
+					enqueue(key, hash);
+					return true;
+				}
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(K key) throws InterruptedException {
+		Assert.notNull(key, "Key must not be null");
+		int hash = hash(key);
+		lock.lockInterruptibly();
+		try {
+			while (slot(key, hash) == EMPTY) {
+				if (count < capacity) {
+					enqueue(key, hash);
+					return;
+				}
+				notFull.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public K poll() {
+		lock.lock();
+		try {
+			if (count > 0 && waitTime() <= 0) {
+				return dequeue();
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public K poll(long timeout, TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			return awaitHead(unit.toNanos(timeout)) ? dequeue() : null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Retrieves and removes the head of this queue along with its last event,
+	 * waiting up to the specified wait time if necessary for a key to become
+	 * available.
+	 *
+	 * @return the head key and its last event, or null if the specified waiting
+	 *         time elapses before a key is available
+	 */
+	public KeyEvent<K> pollEvent(long timeout, TimeUnit unit) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			if (awaitHead(unit.toNanos(timeout))) {
+				String event = events[head];
+				return new KeyEvent<>(dequeue(), event);
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public K take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			for (;;) {
+				if (count == 0) {
+					notEmpty.await();
+				} else {
+					long wait = waitTime();
+					if (wait <= 0) {
+						return dequeue();
+					}
+					notEmpty.awaitNanos(wait);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public K peek() {
+		lock.lock();
+		try {
+			return count == 0 ? null : (K) keys[head];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super K> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super K> c, int maxElements) {
+		Assert.notNull(c, "Collection must not be null");
+		Assert.isTrue(c != this, "Cannot drain queue to itself");
+		lock.lock();
+		try {
+			int drained = 0;
+			while (drained < maxElements && count > 0 && waitTime() <= 0) {
+				c.add(dequeue());
+				drained++;
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (o == null) {
+			return false;
+		}
+		int hash = hash(o);
+		lock.lock();
+		try {
+			return slot(o, hash) != EMPTY;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return capacity - count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			Arrays.fill(keys, null);
+			Arrays.fill(events, null);
+			Arrays.fill(index, EMPTY);
+			head = 0;
+			count = 0;
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return an iterator over a snapshot of the queued keys. Removal is not
+	 *         supported.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<K> iterator() {
+		lock.lock();
+		try {
+			List<K> snapshot = new ArrayList<>(count);
+			for (int offset = 0; offset < count; offset++) {
+				snapshot.add((K) keys[(head + offset) % capacity]);
+			}
+			return Collections.unmodifiableList(snapshot).iterator();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean awaitHead(long nanos) throws InterruptedException {
+		for (;;) {
+			long wait = count == 0 ? nanos : waitTime();
+			if (count > 0 && wait <= 0) {
+				return true;
+			}
+			if (nanos <= 0) {
+				return false;
+			}
+			long awaited = Math.min(wait, nanos);
+			nanos -= awaited - notEmpty.awaitNanos(awaited);
+		}
+	}
+
+	private long waitTime() {
+		if (delay <= 0) {
+			return 0;
+		}
+		return delay - (System.nanoTime() - times[head]);
+	}
+
+	private void enqueue(K key, int hash) {
+		int position = (head + count) % capacity;
+		keys[position] = key;
+		hashes[position] = hash;
+		times[position] = delay > 0 ? System.nanoTime() : 0;
+		int slot = hash & mask;
+		while (index[slot] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		index[slot] = position;
+		count++;
+		notEmpty.signal();
+	}
+
+	@SuppressWarnings("unchecked")
+	private K dequeue() {
+		K key = (K) keys[head];
+		int slot = hashes[head] & mask;
+		while (index[slot] != head) {
+			slot = (slot + 1) & mask;
+		}
+		removeSlot(slot);
+		keys[head] = null;
+		events[head] = null;
+		head = (head + 1) % capacity;
+		count--;
+		notFull.signal();
+		if (count > 0) {
+			notEmpty.signal();
+		}
+		return key;
+	}
+
+	/**
+	 * Removes the given index slot, shifting back subsequent entries of the probe
+	 * sequence so that lookups never stop at an empty slot too early.
+	 */
+	private void removeSlot(int slot) {
+		int hole = slot;
+		for (int next = (hole + 1) & mask; index[next] != EMPTY; next = (next + 1) & mask) {
+			int home = hashes[index[next]] & mask;
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				index[hole] = index[next];
+				hole = next;
+			}
+		}
+		index[hole] = EMPTY;
+	}
+
+	private int slot(Object key, int hash) {
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int position = index[slot];
+			if (position == EMPTY) {
+				return EMPTY;
+			}
+			if (hashes[position] == hash && keyEquals(keys[position], key)) {
+				return slot;
+			}
+		}
+	}
+
+	private static int hash(Object key) {
+		int hash = key instanceof byte[] ? Arrays.hashCode((byte[]) key) : key.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean keyEquals(Object key, Object other) {
+		if (key instanceof byte[] && other instanceof byte[]) {
+			return Arrays.equals((byte[]) key, (byte[]) other);
+		}
+		return key.equals(other);
+	}
+
+}
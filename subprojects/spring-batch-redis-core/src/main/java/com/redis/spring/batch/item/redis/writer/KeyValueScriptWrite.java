@@ -0,0 +1,231 @@
+package com.redis.spring.batch.item.redis.writer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.util.Assert;
+
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.timeseries.Sample;
+import com.redis.lettucemod.util.RedisModulesUtils;
+import com.redis.spring.batch.item.redis.common.BatchUtils;
+import com.redis.spring.batch.item.redis.common.DataType;
+import com.redis.spring.batch.item.redis.common.InitializingOperation;
+import com.redis.spring.batch.item.redis.common.KeyValue;
+import com.redis.spring.batch.item.redis.writer.KeyValueWrite.WriteMode;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.protocol.PipelinedRedisFuture;
+
+/**
+ * Writes key/values with a server-side script that deletes, writes and expires
+ * each key. Keys are sent in one EVALSHA call per slot and the script returns
+ * a status for each key.
+ */
+public class KeyValueScriptWrite<K, V, T> implements InitializingOperation<K, V, KeyValue<K, T>, Object> {
+
+	private static final String SCRIPT_FILENAME = "keyvaluewrite.lua";
+	private static final String STATUS_OK = "OK";
+	private static final String TYPE_DUMP = "dump";
+	private static final String TYPE_NONE = DataType.NONE.getString();
+
+	private final RedisCodec<K, V> codec;
+	private final boolean dump;
+	private final Function<String, V> stringValueFunction;
+	private final Function<V, String> toStringValueFunction;
+
+	private AbstractRedisClient client;
+	private WriteMode mode = KeyValueWrite.DEFAULT_MODE;
+	private String digest;
+
+	private KeyValueScriptWrite(RedisCodec<K, V> codec, boolean dump) {
+		this.codec = codec;
+		this.dump = dump;
+		this.stringValueFunction = BatchUtils.stringValueFunction(codec);
+		this.toStringValueFunction = BatchUtils.toStringValueFunction(codec);
+	}
+
+	@Override
+	public void setClient(AbstractRedisClient client) {
+		this.client = client;
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception {
+		Assert.notNull(client, "Redis client not set");
+		String lua = BatchUtils.readFile(SCRIPT_FILENAME);
+		try (StatefulRedisModulesConnection<K, V> connection = RedisModulesUtils.connection(client, codec)) {
+			digest = connection.sync().scriptLoad(lua);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public List<RedisFuture<Object>> execute(RedisAsyncCommands<K, V> commands,
+			Iterable<? extends KeyValue<K, T>> items) {
+		List<RedisFuture<Object>> futures = new ArrayList<>();
+		for (List<KeyValue<K, T>> slotItems : BatchUtils.partitionBySlot(commands, codec, items, KeyValue::getKey)) {
+			// Appended entries are merged into existing values
+			Map<Boolean, List<KeyValue<K, T>>> appendItems = slotItems.stream()
+					.collect(Collectors.partitioningBy(KeyValue::isAppend));
+			for (Map.Entry<Boolean, List<KeyValue<K, T>>> entry : appendItems.entrySet()) {
+				boolean overwrite = isOverwrite() && !entry.getKey();
+				List<K> keys = new ArrayList<>();
+				List<V> args = new ArrayList<>();
+				args.add(string(overwrite ? "overwrite" : "merge"));
+				for (KeyValue<K, T> item : entry.getValue()) {
+					if (addArgs(args, item)) {
+						keys.add(item.getKey());
+					}
+				}
+				if (!keys.isEmpty()) {
+					RedisFuture<List<Object>> future = commands.evalsha(digest, ScriptOutputType.MULTI,
+							(K[]) keys.toArray(), (V[]) args.toArray());
+					futures.add((RedisFuture) new PipelinedRedisFuture<>(future.thenAccept(this::checkStatuses)));
+				}
+			}
+		}
+		return futures;
+	}
+
+	private void checkStatuses(List<Object> statuses) {
+		for (Object status : statuses) {
+			String message = status(status);
+			if (!STATUS_OK.equals(message)) {
+				throw new RedisCommandExecutionException(message);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private String status(Object status) {
+		if (status instanceof String) {
+			return (String) status;
+		}
+		return toStringValueFunction.apply((V) status);
+	}
+
+	private boolean addArgs(List<V> args, KeyValue<K, T> item) {
+		List<V> values = KeyValue.exists(item) && KeyValue.hasValue(item) ? values(item) : null;
+		if (values == null && KeyValue.exists(item) && !isOverwrite()) {
+			// Nothing to merge
+			return false;
+		}
+		String type = TYPE_NONE;
+		if (values != null) {
+			type = dump ? TYPE_DUMP : KeyValue.type(item).getString();
+		}
+		args.add(string(type));
+		args.add(string(String.valueOf(item.getTtl())));
+		if (values == null) {
+			args.add(string("0"));
+		} else {
+			args.add(string(String.valueOf(values.size())));
+			args.addAll(values);
+		}
+		return true;
+	}
+
+	private boolean isOverwrite() {
+		return dump || mode == WriteMode.OVERWRITE;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<V> values(KeyValue<K, T> item) {
+		List<V> values = new ArrayList<>();
+		Object value = item.getValue();
+		if (dump) {
+			values.add(codec.decodeValue(ByteBuffer.wrap((byte[]) value)));
+			return values;
+		}
+		DataType type = KeyValue.type(item);
+		if (type == null) {
+			return null;
+		}
+		switch (type) {
+		case HASH:
+			((Map<K, V>) value).forEach((k, v) -> {
+				values.add(keyValue(k));
+				values.add(v);
+			});
+			break;
+		case JSON:
+		case STRING:
+			values.add((V) value);
+			break;
+		case LIST:
+		case SET:
+			values.addAll((Collection<V>) value);
+			break;
+		case STREAM:
+			for (StreamMessage<K, V> message : (Collection<StreamMessage<K, V>>) value) {
+				values.add(string(message.getId()));
+				values.add(string(String.valueOf(message.getBody().size() * 2)));
+				message.getBody().forEach((k, v) -> {
+					values.add(keyValue(k));
+					values.add(v);
+				});
+			}
+			break;
+		case TIMESERIES:
+			for (Sample sample : (Collection<Sample>) value) {
+				values.add(string(String.valueOf(sample.getTimestamp())));
+				values.add(string(String.valueOf(sample.getValue())));
+			}
+			break;
+		case ZSET:
+			for (ScoredValue<V> scoredValue : (Collection<ScoredValue<V>>) value) {
+				values.add(string(String.valueOf(scoredValue.getScore())));
+				values.add(scoredValue.getValue());
+			}
+			break;
+		default:
+			return null;
+		}
+		return values;
+	}
+
+	private V keyValue(K key) {
+		return codec.decodeValue(codec.encodeKey(key));
+	}
+
+	private V string(String string) {
+		return stringValueFunction.apply(string);
+	}
+
+	public WriteMode getMode() {
+		return mode;
+	}
+
+	public void setMode(WriteMode mode) {
+		this.mode = mode;
+	}
+
+	public static <K, V> KeyValueScriptWrite<K, V, Object> struct(RedisCodec<K, V> codec) {
+		return new KeyValueScriptWrite<>(codec, false);
+	}
+
+	public static <K, V> KeyValueScriptWrite<K, V, Object> struct(RedisCodec<K, V> codec, WriteMode mode) {
+		KeyValueScriptWrite<K, V, Object> operation = struct(codec);
+		operation.setMode(mode);
+		return operation;
+	}
+
+	public static KeyValueScriptWrite<byte[], byte[], byte[]> dump() {
+		return new KeyValueScriptWrite<>(ByteArrayCodec.INSTANCE, true);
+	}
+
+}
@@ -1,31 +1,40 @@
 package com.redis.spring.batch.item.redis.writer;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import org.springframework.util.CollectionUtils;
+
 import com.redis.lettucemod.timeseries.AddOptions;
 import com.redis.lettucemod.timeseries.DuplicatePolicy;
+import com.redis.lettucemod.timeseries.Sample;
 import com.redis.spring.batch.item.redis.common.DataType;
 import com.redis.spring.batch.item.redis.common.KeyValue;
 import com.redis.spring.batch.item.redis.common.Operation;
-import com.redis.spring.batch.item.redis.writer.operation.Del;
 import com.redis.spring.batch.item.redis.writer.operation.ExpireAt;
 import com.redis.spring.batch.item.redis.writer.operation.Hset;
+import com.redis.spring.batch.item.redis.writer.operation.JsonMset;
 import com.redis.spring.batch.item.redis.writer.operation.JsonSet;
+import com.redis.spring.batch.item.redis.writer.operation.Mset;
 import com.redis.spring.batch.item.redis.writer.operation.Noop;
 import com.redis.spring.batch.item.redis.writer.operation.Rpush;
 import com.redis.spring.batch.item.redis.writer.operation.Sadd;
-import com.redis.spring.batch.item.redis.writer.operation.Set;
 import com.redis.spring.batch.item.redis.writer.operation.TsAdd;
+import com.redis.spring.batch.item.redis.writer.operation.TsMadd;
+import com.redis.spring.batch.item.redis.writer.operation.Unlink;
 import com.redis.spring.batch.item.redis.writer.operation.Xadd;
 import com.redis.spring.batch.item.redis.writer.operation.Zadd;
 
 import io.lettuce.core.RedisFuture;
 import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
 
 public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>, Object> {
 
@@ -34,24 +43,48 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 	}
 
 	private enum OperationType {
-		HSET, JSON_SET, RPUSH, SADD, XADD, SET, TS_ADD, ZADD, NONE
+		HSET, JSON_MSET, RPUSH, SADD, XADD, MSET, TS_ADD, ZADD, NONE
 	}
 
 	public static final WriteMode DEFAULT_MODE = WriteMode.OVERWRITE;
 
 	private final Noop<K, V, KeyValue<K, Object>> noop = new Noop<>();
-	private final Del<K, V, KeyValue<K, Object>> delete = delete();
+	private final Unlink<K, V, KeyValue<K, Object>> delete = delete();
 	private final ExpireAt<K, V, KeyValue<K, Object>> expire = expire();
 	private final Hset<K, V, KeyValue<K, Object>> hset = hset();
 	private final JsonSet<K, V, KeyValue<K, Object>> jsonSet = jsonSet();
+	private final JsonMset<K, V, KeyValue<K, Object>> jsonMset;
 	private final Rpush<K, V, KeyValue<K, Object>> rpush = rpush();
 	private final Sadd<K, V, KeyValue<K, Object>> sadd = sadd();
 	private final Xadd<K, V, KeyValue<K, Object>> xadd = xadd();
-	private final Set<K, V, KeyValue<K, Object>> set = set();
-	private final TsAdd<K, V, KeyValue<K, Object>> tsAdd = tsAdd();
+	private final Mset<K, V, KeyValue<K, Object>> mset = mset();
+	private final TsAdd<K, V, KeyValue<K, Object>> tsAdd = tsAdd(KeyValueWrite::value);
+	private final TsAdd<K, V, KeyValue<K, Object>> tsAddFirst = tsAdd(KeyValueWrite::firstSample);
+	private final TsMadd<K, V, KeyValue<K, Object>> tsMadd;
 	private final Zadd<K, V, KeyValue<K, Object>> zadd = zadd();
 
 	private WriteMode mode = DEFAULT_MODE;
+	private boolean jsonMultiSet = true;
+
+	/**
+	 * Coalesces JSON documents into JSON.MSET commands and time-series samples
+	 * into TS.MADD commands, one per cluster slot, which the codec is needed for.
+	 */
+	public KeyValueWrite(RedisCodec<K, V> codec) {
+		this.jsonMset = new JsonMset<>(codec, KeyValue::getKey, KeyValueWrite::value);
+		this.tsMadd = new TsMadd<>(codec, KeyValue::getKey, KeyValueWrite::remainingSamples);
+	}
+
+	/**
+	 * @deprecated use {@link #KeyValueWrite(RedisCodec)}. Without a codec JSON
+	 *             documents are written with JSON.SET and time-series samples
+	 *             with TS.ADD, one command per key.
+	 */
+	@Deprecated
+	public KeyValueWrite() {
+		this.jsonMset = null;
+		this.tsMadd = null;
+	}
 
 	@Override
 	public List<RedisFuture<Object>> execute(RedisAsyncCommands<K, V> commands,
@@ -67,14 +100,14 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		return new Zadd<>(KeyValue::getKey, KeyValueWrite::value);
 	}
 
-	private TsAdd<K, V, KeyValue<K, Object>> tsAdd() {
-		TsAdd<K, V, KeyValue<K, Object>> operation = new TsAdd<>(KeyValue::getKey, KeyValueWrite::value);
+	private TsAdd<K, V, KeyValue<K, Object>> tsAdd(Function<KeyValue<K, Object>, Collection<Sample>> samples) {
+		TsAdd<K, V, KeyValue<K, Object>> operation = new TsAdd<>(KeyValue::getKey, samples);
 		operation.setOptions(AddOptions.<K, V>builder().policy(DuplicatePolicy.LAST).build());
 		return operation;
 	}
 
-	private Del<K, V, KeyValue<K, Object>> delete() {
-		return new Del<>(KeyValue::getKey);
+	private Unlink<K, V, KeyValue<K, Object>> delete() {
+		return new Unlink<>(KeyValue::getKey);
 	}
 
 	private ExpireAt<K, V, KeyValue<K, Object>> expire() {
@@ -95,8 +128,8 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		return new Sadd<>(KeyValue::getKey, KeyValueWrite::value);
 	}
 
-	private Set<K, V, KeyValue<K, Object>> set() {
-		return new Set<>(KeyValue::getKey, KeyValueWrite::value);
+	private Mset<K, V, KeyValue<K, Object>> mset() {
+		return new Mset<>(KeyValue::getKey, KeyValueWrite::value);
 	}
 
 	private JsonSet<K, V, KeyValue<K, Object>> jsonSet() {
@@ -133,7 +166,7 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		case HASH:
 			return OperationType.HSET;
 		case JSON:
-			return OperationType.JSON_SET;
+			return OperationType.JSON_MSET;
 		case LIST:
 			return OperationType.RPUSH;
 		case SET:
@@ -141,7 +174,7 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		case STREAM:
 			return OperationType.XADD;
 		case STRING:
-			return OperationType.SET;
+			return OperationType.MSET;
 		case TIMESERIES:
 			return OperationType.TS_ADD;
 		case ZSET:
@@ -155,18 +188,18 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		switch (operationType) {
 		case HSET:
 			return hset;
-		case JSON_SET:
-			return jsonSet;
+		case JSON_MSET:
+			return jsonMset == null || !jsonMultiSet ? jsonSet : jsonMset;
 		case RPUSH:
 			return rpush;
 		case SADD:
 			return sadd;
 		case XADD:
 			return xadd;
-		case SET:
-			return set;
+		case MSET:
+			return mset;
 		case TS_ADD:
-			return tsAdd;
+			return timeseries();
 		case ZADD:
 			return zadd;
 		default:
@@ -174,8 +207,45 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		}
 	}
 
+	/**
+	 * In overwrite mode target time-series are deleted beforehand, so the first
+	 * sample of each key is written with TS.ADD to create the key and the
+	 * remaining samples are batched across keys with TS.MADD. In merge mode
+	 * samples are written with TS.ADD so that duplicates are resolved with the
+	 * LAST policy.
+	 */
+	private Operation<K, V, KeyValue<K, Object>, Object> timeseries() {
+		if (mode == WriteMode.OVERWRITE && tsMadd != null) {
+			return (commands, items) -> {
+				List<RedisFuture<Object>> futures = new ArrayList<>(tsAddFirst.execute(commands, items));
+				futures.addAll(tsMadd.execute(commands, items));
+				return futures;
+			};
+		}
+		return tsAdd;
+	}
+
+	private static <K> Collection<Sample> firstSample(KeyValue<K, Object> item) {
+		Collection<Sample> samples = value(item);
+		if (CollectionUtils.isEmpty(samples)) {
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(samples.iterator().next());
+	}
+
+	private static <K> Collection<Sample> remainingSamples(KeyValue<K, Object> item) {
+		Collection<Sample> samples = value(item);
+		if (CollectionUtils.isEmpty(samples)) {
+			return Collections.emptyList();
+		}
+		return samples.stream().skip(1).collect(Collectors.toList());
+	}
+
 	private boolean shouldDelete(KeyValue<K, Object> item) {
-		return mode == WriteMode.OVERWRITE || !KeyValue.exists(item);
+		if (!KeyValue.exists(item)) {
+			return true;
+		}
+		return mode == WriteMode.OVERWRITE && !item.isAppend();
 	}
 
 	@SuppressWarnings("unchecked")
@@ -187,10 +257,34 @@ public class KeyValueWrite<K, V> implements Operation<K, V, KeyValue<K, Object>,
 		this.mode = mode;
 	}
 
+	public boolean isJsonMultiSet() {
+		return jsonMultiSet;
+	}
+
+	/**
+	 * 
+	 * @param enable true to write JSON documents with JSON.MSET, which requires
+	 *               RedisJSON 2.6 or later, false to write them with JSON.SET
+	 *               one document at a time
+	 */
+	public void setJsonMultiSet(boolean enable) {
+		this.jsonMultiSet = enable;
+	}
+
+	/**
+	 * @deprecated use {@link #create(RedisCodec, WriteMode)}
+	 */
+	@Deprecated
 	public static <K, V> KeyValueWrite<K, V> create(WriteMode mode) {
 		KeyValueWrite<K, V> operation = new KeyValueWrite<>();
 		operation.setMode(mode);
 		return operation;
 	}
 
+	public static <K, V> KeyValueWrite<K, V> create(RedisCodec<K, V> codec, WriteMode mode) {
+		KeyValueWrite<K, V> operation = new KeyValueWrite<>(codec);
+		operation.setMode(mode);
+		return operation;
+	}
+
 }
@@ -0,0 +1,70 @@
+package com.redis.spring.batch.item.redis.writer.operation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.redis.spring.batch.item.redis.common.BatchUtils;
+import com.redis.spring.batch.item.redis.writer.AbstractValueWriteOperation;
+
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.output.StatusOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+
+/**
+ * Writes all given documents with JSON.MSET, one command per slot. Requires
+ * RedisJSON 2.6 or later.
+ */
+public class JsonMset<K, V, T> extends AbstractValueWriteOperation<K, V, V, T> {
+
+	private final RedisCodec<K, V> codec;
+
+	private Function<T, String> pathFunction = t -> JsonSet.ROOT_PATH;
+
+	public JsonMset(RedisCodec<K, V> codec, Function<T, K> keyFunction, Function<T, V> valueFunction) {
+		super(keyFunction, valueFunction);
+		this.codec = codec;
+	}
+
+	public void setPath(String path) {
+		this.pathFunction = t -> path;
+	}
+
+	public void setPathFunction(Function<T, String> path) {
+		this.pathFunction = path;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public List<RedisFuture<Object>> execute(RedisAsyncCommands<K, V> commands, Iterable<? extends T> items) {
+		List<RedisFuture<Object>> futures = new ArrayList<>();
+		for (List<T> slotItems : BatchUtils.partitionBySlot(commands, codec, items, keyFunction)) {
+			CommandArgs<K, V> args = new CommandArgs<>(codec);
+			slotItems.forEach(t -> args.addKey(key(t)).add(pathFunction.apply(t)).addValue(value(t)));
+			futures.add((RedisFuture) commands.dispatch(CommandKeyword.JSON_MSET, new StatusOutput<>(codec), args));
+		}
+		return futures;
+	}
+
+	private enum CommandKeyword implements ProtocolKeyword {
+
+		JSON_MSET("JSON.MSET");
+
+		private final byte[] bytes;
+
+		CommandKeyword(String name) {
+			this.bytes = name.getBytes(StandardCharsets.US_ASCII);
+		}
+
+		@Override
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+	}
+
+}
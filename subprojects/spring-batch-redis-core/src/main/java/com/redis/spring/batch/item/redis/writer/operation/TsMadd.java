@@ -0,0 +1,53 @@
+package com.redis.spring.batch.item.redis.writer.operation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.util.CollectionUtils;
+
+import com.redis.lettucemod.api.async.RedisModulesAsyncCommands;
+import com.redis.lettucemod.timeseries.Sample;
+import com.redis.spring.batch.item.redis.common.BatchUtils;
+import com.redis.spring.batch.item.redis.writer.AbstractValueWriteOperation;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.RedisCodec;
+
+/**
+ * Writes the samples of all given items with TS.MADD, one command per slot.
+ * Target time-series must already exist.
+ */
+public class TsMadd<K, V, T> extends AbstractValueWriteOperation<K, V, Collection<Sample>, T> {
+
+	private final RedisCodec<K, V> codec;
+
+	public TsMadd(RedisCodec<K, V> codec, Function<T, K> keyFunction, Function<T, Collection<Sample>> valueFunction) {
+		super(keyFunction, valueFunction);
+		this.codec = codec;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public List<RedisFuture<Object>> execute(RedisAsyncCommands<K, V> commands, Iterable<? extends T> items) {
+		List<KeyValue<K, Sample>> samples = new ArrayList<>();
+		for (T item : items) {
+			Collection<Sample> value = value(item);
+			if (!CollectionUtils.isEmpty(value)) {
+				K key = key(item);
+				value.forEach(s -> samples.add(KeyValue.just(key, s)));
+			}
+		}
+		RedisModulesAsyncCommands<K, V> modulesCommands = (RedisModulesAsyncCommands<K, V>) commands;
+		List<RedisFuture<Object>> futures = new ArrayList<>();
+		for (List<KeyValue<K, Sample>> slotSamples : BatchUtils.partitionBySlot(commands, codec, samples,
+				KeyValue::getKey)) {
+			futures.add((RedisFuture) modulesCommands.tsMadd(slotSamples.toArray(new KeyValue[0])));
+		}
+		return futures;
+	}
+
+}
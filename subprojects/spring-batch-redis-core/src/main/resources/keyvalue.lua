@@ -39,6 +39,17 @@ local function struct_value (key, type)
   return nil
 end
 
+-- Entries appended after the given position: list index or exclusive stream ID
+local function append_value (key, type, from)
+  if type == 'list' then
+    return redis.call('LRANGE', key, from, -1)
+  end
+  if type == 'stream' then
+    return redis.call('XRANGE', key, '(' .. from, '+')
+  end
+  return nil
+end
+
 local function value (mode, key, type)
   if mode == 'dump' then
     return redis.call('DUMP', key)
@@ -62,5 +73,8 @@ if memlimit > 0 then
     return { key, ttl, type, mem }
   end
 end
+if mode == 'struct' and ARGV[4] == type then
+  return { key, ttl, type, mem, append_value(key, type, ARGV[5]), 1 }
+end
 local value = value(mode, key, type)
 return { key, ttl, type, mem, value }
\ No newline at end of file
@@ -0,0 +1,112 @@
+-- Writes a batch of key/values in a single call.
+-- ARGV[1] is the write mode ('overwrite' or 'merge'), followed for each key by:
+-- type, expiration POSIX time in milliseconds, argument count, arguments.
+-- Type 'dump' restores a DUMP payload and type 'none' only deletes the key.
+-- Returns one status per key: 'OK' or the error message.
+-- A key that fails to be written is restored to its previous value.
+
+local batch = 1000
+
+local function batched (command, key, args, stride)
+  local size = batch - (batch % stride)
+  for i = 1, #args, size do
+    redis.call(command, key, unpack(args, i, math.min(i + size - 1, #args)))
+  end
+end
+
+local function xadd (key, args)
+  local i = 1
+  while i <= #args do
+    local id = args[i]
+    local count = tonumber(args[i + 1])
+    redis.call('XADD', key, id, unpack(args, i + 2, i + 1 + count))
+    i = i + 2 + count
+  end
+end
+
+local function tsadd (key, args)
+  for i = 1, #args, 2 do
+    redis.call('TS.ADD', key, args[i], args[i + 1], 'ON_DUPLICATE', 'LAST')
+  end
+end
+
+local function write (key, kind, ttl, args)
+  if kind == 'dump' then
+    if ttl > 0 then
+      redis.call('RESTORE', key, ttl, args[1], 'REPLACE', 'ABSTTL')
+    else
+      redis.call('RESTORE', key, 0, args[1], 'REPLACE')
+    end
+    return
+  end
+  if #args == 0 then
+    return
+  end
+  if kind == 'hash' then
+    batched('HSET', key, args, 2)
+  elseif kind == 'ReJSON-RL' then
+    redis.call('JSON.SET', key, '$', args[1])
+  elseif kind == 'list' then
+    batched('RPUSH', key, args, 1)
+  elseif kind == 'set' then
+    batched('SADD', key, args, 1)
+  elseif kind == 'stream' then
+    xadd(key, args)
+  elseif kind == 'string' then
+    redis.call('SET', key, args[1])
+  elseif kind == 'TSDB-TYPE' then
+    tsadd(key, args)
+  elseif kind == 'zset' then
+    batched('ZADD', key, args, 2)
+  end
+  if ttl > 0 then
+    redis.call('PEXPIREAT', key, ttl)
+  end
+end
+
+local function rollback (key, backup, pttl)
+  if backup then
+    redis.call('RESTORE', key, math.max(pttl, 0), backup, 'REPLACE')
+  elseif backup == false then
+    redis.call('DEL', key)
+  end
+end
+
+local overwrite = ARGV[1] == 'overwrite'
+local statuses = {}
+local index = 2
+for i, key in ipairs(KEYS) do
+  local kind = ARGV[index]
+  local ttl = tonumber(ARGV[index + 1])
+  local count = tonumber(ARGV[index + 2])
+  local args = {}
+  for j = 1, count do
+    args[j] = ARGV[index + 2 + j]
+  end
+  index = index + 3 + count
+  -- DUMP the previous value to restore it if the write fails
+  local backup, pttl
+  if kind ~= 'none' and kind ~= 'dump' then
+    backup = redis.call('DUMP', key)
+    pttl = redis.call('PTTL', key)
+  end
+  local ok, err = pcall(function ()
+    if (overwrite and kind ~= 'dump') or kind == 'none' then
+      redis.call('DEL', key)
+    end
+    if kind ~= 'none' then
+      write(key, kind, ttl, args)
+    end
+  end)
+  if ok then
+    statuses[i] = 'OK'
+  else
+    rollback(key, backup, pttl)
+    if type(err) == 'table' then
+      statuses[i] = tostring(err.err)
+    else
+      statuses[i] = tostring(err)
+    end
+  end
+end
+return statuses
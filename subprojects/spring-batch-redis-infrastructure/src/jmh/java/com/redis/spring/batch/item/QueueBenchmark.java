@@ -0,0 +1,95 @@
+package com.redis.spring.batch.item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Handoff throughput of the reader queue implementations between producer
+ * threads writing chunks and a consumer polling them, as done between the
+ * fetch job and the step of an asynchronous reader. Operations do not block so
+ * that iterations can end while the queue is full or empty.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueBenchmark {
+
+	private static final int CAPACITY = 10000;
+	private static final int CHUNK_SIZE = 50;
+	private static final Object ITEM = new Object();
+
+	@Param({ "linked", "bulk", "ring" })
+	private String queueType;
+
+	private BlockingQueue<Object> queue;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		switch (queueType) {
+		case "linked":
+			queue = new LinkedBlockingQueue<>(CAPACITY);
+			break;
+		case "bulk":
+			queue = new BulkBlockingQueue<>(CAPACITY);
+			break;
+		default:
+			queue = new RingBufferQueue<>(CAPACITY, WaitStrategy.SPIN);
+			break;
+		}
+	}
+
+	@Benchmark
+	@Group("item")
+	@GroupThreads(2)
+	public boolean offerItem() {
+		return queue.offer(ITEM);
+	}
+
+	@Benchmark
+	@Group("item")
+	@GroupThreads(1)
+	public Object pollItem() {
+		return queue.poll();
+	}
+
+	@Benchmark
+	@Group("chunk")
+	@GroupThreads(2)
+	public int offerChunk() {
+		int offered = 0;
+		while (offered < CHUNK_SIZE && queue.offer(ITEM)) {
+			offered++;
+		}
+		return offered;
+	}
+
+	@Benchmark
+	@Group("chunk")
+	@GroupThreads(1)
+	public int drainChunk() {
+		List<Object> items = new ArrayList<>(CHUNK_SIZE);
+		return queue.drainTo(items, CHUNK_SIZE);
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.redis.spring.batch.step;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.observability.BatchMetrics;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.batch.repeat.support.RepeatTemplate;
+
+import com.redis.spring.batch.item.PollableItemReader;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Per-item overhead of the flushing chunk provider reading from a reader that
+ * never waits. The metrics benchmarks isolate the cost of timing a poll by
+ * resolving a tagged timer for each poll, as the provider used to, against
+ * recording into a cached timer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlushingChunkProviderBenchmark {
+
+	private static final int CHUNK_SIZE = 50;
+	private static final Object ITEM = new Object();
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private StepContribution contribution;
+	private FlushingChunkProvider<Object> bulkProvider;
+	private FlushingChunkProvider<Object> itemProvider;
+	private Timer timer;
+
+	@Setup
+	public void setup() {
+		JobExecution jobExecution = new JobExecution(new JobInstance(1L, "benchmark"), new JobParameters());
+		StepExecution stepExecution = new StepExecution("benchmark", jobExecution);
+		contribution = new StepContribution(stepExecution);
+		bulkProvider = provider(CHUNK_SIZE);
+		itemProvider = provider(0);
+		timer = Timer.builder("chunk.read").register(meterRegistry);
+	}
+
+	private FlushingChunkProvider<Object> provider(int chunkSize) {
+		RepeatTemplate repeatTemplate = new RepeatTemplate();
+		repeatTemplate.setCompletionPolicy(new SimpleCompletionPolicy(CHUNK_SIZE));
+		FlushingChunkProvider<Object> provider = new FlushingChunkProvider<>(new InfiniteItemReader(), repeatTemplate);
+		provider.setChunkSize(chunkSize);
+		provider.setMeterRegistry(meterRegistry);
+		return provider;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHUNK_SIZE)
+	public Chunk<Object> provideBulk() {
+		return bulkProvider.provide(contribution);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CHUNK_SIZE)
+	public Chunk<Object> provideItems() {
+		return itemProvider.provide(contribution);
+	}
+
+	@Benchmark
+	public void timerPerPoll() {
+		long start = System.currentTimeMillis();
+		Timer.Sample sample = Timer.start(meterRegistry);
+		sample.stop(BatchMetrics.createTimer(meterRegistry, "item.read", "Item reading duration",
+				Tag.of("job.name", "benchmark"), Tag.of("step.name", "benchmark"),
+				Tag.of("status", BatchMetrics.STATUS_SUCCESS)));
+		if (System.currentTimeMillis() - start < 0) {
+			throw new IllegalStateException();
+		}
+	}
+
+	@Benchmark
+	public void cachedTimer() {
+		long start = System.nanoTime();
+		timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private static class InfiniteItemReader implements PollableItemReader<Object> {
+
+		@Override
+		public Object read() {
+			return ITEM;
+		}
+
+		@Override
+		public Object poll(long timeout, TimeUnit unit) {
+			return ITEM;
+		}
+
+		@Override
+		public List<Object> poll(int maxItems, long timeout, TimeUnit unit) {
+			List<Object> items = new ArrayList<>(maxItems);
+			for (int index = 0; index < maxItems; index++) {
+				items.add(ITEM);
+			}
+			return items;
+		}
+
+	}
+
+}
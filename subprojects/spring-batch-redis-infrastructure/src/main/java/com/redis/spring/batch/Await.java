@@ -1,8 +1,6 @@
 package com.redis.spring.batch;
 
 import java.time.Duration;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.BooleanSupplier;
@@ -33,7 +31,7 @@ public class Await {
 	}
 
 	/**
-	 * Blocks until test is true
+	 * Blocks until test is true, evaluating it on the calling thread
 	 *
 	 * @param test boolean supplier to wait for
 	 * @throws InterruptedException if interrupted while waiting
@@ -41,19 +39,22 @@ public class Await {
 	 *                              duration
 	 */
 	public void until(BooleanSupplier test) throws TimeoutException, InterruptedException {
-		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-		try {
-			executor.scheduleWithFixedDelay(() -> {
-				if (test.getAsBoolean()) {
-					executor.shutdown();
-				}
-			}, initialDelay.toMillis(), delay.toMillis(), TimeUnit.MILLISECONDS);
-			boolean terminated = executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
-			if (!terminated) {
+		long deadline = System.nanoTime() + timeout.toNanos();
+		sleep(initialDelay.toNanos());
+		while (!test.getAsBoolean()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
 				throw new TimeoutException(String.format("Condition not fulfilled within %s", timeout));
 			}
-		} finally {
-			executor.shutdown();
+			sleep(Math.min(delay.toNanos(), remaining));
+		}
+	}
+
+	private static void sleep(long nanos) throws InterruptedException {
+		if (nanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} else if (Thread.interrupted()) {
+			throw new InterruptedException();
 		}
 	}
 
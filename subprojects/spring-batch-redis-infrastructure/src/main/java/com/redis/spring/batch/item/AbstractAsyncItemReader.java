@@ -2,29 +2,37 @@ package com.redis.spring.batch.item;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
 
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobExecutionException;
+import org.springframework.batch.core.JobExecutionListener;
 import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.Step;
 import org.springframework.batch.core.job.builder.JobBuilder;
 import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
 import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.support.SynchronizedItemReader;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
 import com.redis.spring.batch.Await;
 import com.redis.spring.batch.JobUtils;
+import com.redis.spring.batch.step.AdaptiveFlushPolicy;
 import com.redis.spring.batch.step.FlushingChunkProvider;
 import com.redis.spring.batch.step.FlushingStepBuilder;
 
@@ -34,6 +42,7 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 	public static final int DEFAULT_CHUNK_SIZE = 50;
 	public static final Duration DEFAULT_FLUSH_INTERVAL = FlushingChunkProvider.DEFAULT_FLUSH_INTERVAL;
 	public static final Duration DEFAULT_IDLE_TIMEOUT = FlushingChunkProvider.DEFAULT_IDLE_TIMEOUT;
+	public static final Duration DEFAULT_LIFECYCLE_TIMEOUT = Await.DEFAULT_TIMEOUT;
 
 	private ItemReader<S> reader;
 	private ItemProcessor<S, S> processor;
@@ -44,10 +53,14 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 	private int retryLimit;
 	private Duration flushInterval = DEFAULT_FLUSH_INTERVAL;
 	private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private AdaptiveFlushPolicy flushPolicy;
+	private ToIntFunction<S> partitionFunction;
 	private JobRepository jobRepository;
 	private PlatformTransactionManager transactionManager = JobUtils.resourcelessTransactionManager();
+	private Duration lifecycleTimeout = DEFAULT_LIFECYCLE_TIMEOUT;
 
 	private JobExecution jobExecution;
+	private LifecycleListener lifecycle;
 
 	public ItemReader<S> getReader() {
 		return reader;
@@ -60,8 +73,10 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 			jobRepository = JobUtils.jobRepositoryFactoryBean().getObject();
 		}
 		if (jobExecution == null) {
-			SimpleStepBuilder<S, S> step = step();
-			Job job = new JobBuilder(getName(), jobRepository).start(step.build()).build();
+			lifecycle = new LifecycleListener();
+			FaultTolerantStepBuilder<S, S> step = step(writer(), false);
+			step.listener((ChunkListener) lifecycle);
+			Job job = new JobBuilder(getName(), jobRepository).listener(lifecycle).start(step.build()).build();
 			jobExecution = runJob(job);
 		}
 	}
@@ -73,15 +88,15 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 		jobLauncher.afterPropertiesSet();
 		JobExecution execution = jobLauncher.run(job, new JobParameters());
 		try {
-			Await.await().until(() -> execution.isRunning() || execution.getStatus().isUnsuccessful());
+			if (!lifecycle.started.await(lifecycleTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+				List<Throwable> exceptions = execution.getAllFailureExceptions();
+				if (!CollectionUtils.isEmpty(exceptions)) {
+					throw new JobExecutionException("Job execution unsuccessful", exceptions.get(0));
+				}
+			}
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw e;
-		} catch (TimeoutException e) {
-			List<Throwable> exceptions = execution.getAllFailureExceptions();
-			if (!CollectionUtils.isEmpty(exceptions)) {
-				throw new JobExecutionException("Job execution unsuccessful", exceptions.get(0));
-			}
 		}
 		return execution;
 	}
@@ -89,17 +104,70 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 	@Override
 	protected synchronized void doClose() throws TimeoutException, InterruptedException {
 		if (jobExecution != null) {
-			Await.await().untilFalse(jobExecution::isRunning);
+			if (!lifecycle.finished.await(lifecycleTimeout.toNanos(), TimeUnit.NANOSECONDS)
+					&& jobExecution.isRunning()) {
+				throw new TimeoutException(String.format("Job not finished within %s", lifecycleTimeout));
+			}
 			jobExecution = null;
+			lifecycle = null;
+		}
+		closeQueue();
+	}
+
+	/**
+	 * Signals when the step has started reading, i.e. when its reader was opened,
+	 * and when the job has finished, instead of polling the job status.
+	 */
+	private static class LifecycleListener implements JobExecutionListener, ChunkListener {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch finished = new CountDownLatch(1);
+
+		@Override
+		public void beforeChunk(ChunkContext context) {
+			started.countDown();
+		}
+
+		@Override
+		public void afterJob(JobExecution jobExecution) {
+			started.countDown();
+			finished.countDown();
+		}
+
+	}
+
+	/**
+	 * Builds a step that reads and processes source items like this reader, but
+	 * writes the resulting items directly to the given writer. Items then cross a
+	 * single chunk boundary and no queue, instead of being handed from the job of
+	 * this reader to an outer step reading from it. Concurrency is bounded by the
+	 * number of threads and the chunk size of this reader, which must not be
+	 * opened. The step uses the job repository of this reader, which must be
+	 * the one of the job running it.
+	 * 
+	 * @param writer writer of the items this reader would return
+	 * @return step fusing reading and writing
+	 */
+	public synchronized Step fusedStep(ItemWriter<? super T> writer) throws Exception {
+		Assert.isNull(jobExecution, getName() + ": Reader must not be open");
+		if (jobRepository == null) {
+			jobRepository = JobUtils.jobRepositoryFactoryBean().getObject();
 		}
+		return step(new ProcessingItemWriter<>(writeProcessor(), writer), true).build();
 	}
 
-	private FaultTolerantStepBuilder<S, S> step() {
-		SimpleStepBuilder<S, S> step = stepBuilder();
+	/**
+	 * 
+	 * @param downstream true if the writer writes items to their destination,
+	 *                   false if it only queues them for this reader
+	 */
+	private FaultTolerantStepBuilder<S, S> step(ItemWriter<S> writer, boolean downstream) {
+		SimpleStepBuilder<S, S> step = stepBuilder(downstream);
 		reader = reader();
 		step.reader(reader);
 		step.processor(processor);
-		step.writer(writer());
+		step.writer(writer);
+		PartitionedItemReader<S> partitionedReader = null;
 		if (threads > 1) {
 			ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
 			taskExecutor.setMaxPoolSize(threads);
@@ -107,9 +175,23 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 			taskExecutor.setQueueCapacity(threads);
 			taskExecutor.afterPropertiesSet();
 			step.taskExecutor(taskExecutor);
-			step.reader(new SynchronizedItemReader<>(reader));
+			if (reader instanceof PollableItemReader) {
+				// Pollable readers are backed by concurrent queues and only need
+				// partitioning to keep the order of related items
+				if (partitionFunction != null) {
+					partitionedReader = new PartitionedItemReader<>((PollableItemReader<S>) reader, partitionFunction,
+							threads, threads * chunkSize);
+					step.reader(partitionedReader);
+				}
+			} else {
+				step.reader(new ConcurrentBatchItemReader<>(reader, chunkSize));
+			}
+		}
+		FaultTolerantStepBuilder<S, S> ftStep = faultTolerant(step);
+		if (partitionedReader != null) {
+			ftStep.listener((ChunkListener) partitionedReader);
 		}
-		return faultTolerant(step);
+		return ftStep;
 	}
 
 	protected abstract ItemReader<S> reader();
@@ -127,12 +209,14 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 		return ftStep;
 	}
 
-	private SimpleStepBuilder<S, S> stepBuilder() {
+	private SimpleStepBuilder<S, S> stepBuilder(boolean downstream) {
 		SimpleStepBuilder<S, S> step = new StepBuilder(getName(), jobRepository).chunk(chunkSize, transactionManager);
 		if (flushing) {
 			FlushingStepBuilder<S, S> flushingStep = new FlushingStepBuilder<>(step);
 			flushingStep.flushInterval(flushInterval);
 			flushingStep.idleTimeout(idleTimeout);
+			// Queueing latency says nothing about how fast items are written
+			flushingStep.flushPolicy(flushPolicy, downstream);
 			return flushingStep;
 		}
 		return step;
@@ -195,6 +279,26 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 		this.flushInterval = interval;
 	}
 
+	public AdaptiveFlushPolicy getFlushPolicy() {
+		return flushPolicy;
+	}
+
+	/**
+	 * 
+	 * @param policy adapts the flush interval and chunk size of a flushing reader
+	 *               to its load. The chunk size bounds the adaptive chunk size.
+	 *               The reader's own step only queues fetched items, so it does
+	 *               not measure write latency: give the same policy to the step
+	 *               consuming this reader, e.g. with
+	 *               {@link FlushingStepBuilder#flushPolicy(AdaptiveFlushPolicy)},
+	 *               for it to measure the downstream writer. A
+	 *               {@link #fusedStep(ItemWriter) fused step} measures its
+	 *               writer directly.
+	 */
+	public void setFlushPolicy(AdaptiveFlushPolicy policy) {
+		this.flushPolicy = policy;
+	}
+
 	public Duration getIdleTimeout() {
 		return idleTimeout;
 	}
@@ -203,6 +307,19 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 		this.idleTimeout = idleTimeout;
 	}
 
+	public Duration getLifecycleTimeout() {
+		return lifecycleTimeout;
+	}
+
+	/**
+	 * 
+	 * @param timeout how long opening the reader waits for its job to start
+	 *                reading and closing it waits for the job to finish
+	 */
+	public void setLifecycleTimeout(Duration timeout) {
+		this.lifecycleTimeout = timeout;
+	}
+
 	public int getThreads() {
 		return threads;
 	}
@@ -211,6 +328,25 @@ public abstract class AbstractAsyncItemReader<S, T> extends AbstractQueuePollabl
 		this.threads = threads;
 	}
 
+	public ToIntFunction<S> getPartitionFunction() {
+		return partitionFunction;
+	}
+
+	/**
+	 * 
+	 * @param function with multiple threads and a pollable reader, function
+	 *                 returning a hash of the part of source items whose order
+	 *                 must be kept, e.g. their key. Items are then partitioned
+	 *                 into as many partitions as threads, each chunk reading,
+	 *                 processing and writing the items of a single partition,
+	 *                 so that items with the same hash are written in the order
+	 *                 they were read. Null to read items in any order.
+	 * @see PartitionedItemReader
+	 */
+	public void setPartitionFunction(ToIntFunction<S> function) {
+		this.partitionFunction = function;
+	}
+
 	public int getSkipLimit() {
 		return skipLimit;
 	}
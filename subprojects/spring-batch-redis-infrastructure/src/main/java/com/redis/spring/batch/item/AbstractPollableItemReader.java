@@ -1,6 +1,8 @@
 package com.redis.spring.batch.item;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
@@ -47,6 +49,24 @@ public abstract class AbstractPollableItemReader<T> extends AbstractItemCounting
 
 	protected abstract T doPoll(long timeout, TimeUnit unit) throws InterruptedException;
 
+	@Override
+	public List<T> poll(int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+		List<T> items = doPoll(maxItems, timeout, unit);
+		if (!items.isEmpty()) {
+			setCurrentItemCount(getCurrentItemCount() + items.size());
+		}
+		return items;
+	}
+
+	/**
+	 * Polls up to the given number of items. Only polls one item by default,
+	 * subclasses can override it to transfer items in bulk.
+	 */
+	protected List<T> doPoll(int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+		T item = doPoll(timeout, unit);
+		return item == null ? Collections.emptyList() : Collections.singletonList(item);
+	}
+
 	public void setPollTimeout(Duration timeout) {
 		this.pollTimeout = timeout;
 	}
@@ -1,31 +1,77 @@
 package com.redis.spring.batch.item;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
 
 public abstract class AbstractQueuePollableItemReader<T> extends AbstractPollableItemReader<T> {
 
 	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+	public static final DataSize NO_QUEUE_MEMORY_LIMIT = DataSize.ofBytes(0);
+	public static final DataSize DEFAULT_SPILL_LIMIT = DataSize.ofGigabytes(1);
 
 	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private IntFunction<BlockingQueue<T>> queueFactory = BulkBlockingQueue::new;
+	private DataSize queueMemoryLimit = NO_QUEUE_MEMORY_LIMIT;
+	private ToLongFunction<? super T> itemSizeFunction;
+	private Path spillDirectory;
+	private SpillCodec<T> spillCodec;
+	private DataSize spillLimit = DEFAULT_SPILL_LIMIT;
 
 	protected BlockingQueue<T> queue;
 
 	@Override
 	protected synchronized void doOpen() throws Exception {
 		if (queue == null) {
-			queue = new LinkedBlockingQueue<>(queueCapacity);
+			queue = createQueue(queueCapacity);
+		}
+	}
+
+	protected BlockingQueue<T> createQueue(int capacity) {
+		if (queueMemoryLimit.toBytes() > 0) {
+			Assert.notNull(itemSizeFunction, getName() + ": Item size function required with a queue memory limit");
 		}
+		if (spillDirectory != null) {
+			Assert.notNull(spillCodec, getName() + ": Spill codec required with a spill directory");
+			return new SpillQueue<>(spillDirectory, spillCodec, capacity, queueMemoryLimit.toBytes(), itemSizeFunction,
+					SpillQueue.DEFAULT_SEGMENT_SIZE, spillLimit.toBytes());
+		}
+		BlockingQueue<T> itemQueue = queueFactory.apply(capacity);
+		if (queueMemoryLimit.toBytes() > 0) {
+			return new MemoryBoundedQueue<>(itemQueue, queueMemoryLimit.toBytes(), itemSizeFunction);
+		}
+		return itemQueue;
 	}
 
 	@Override
 	protected synchronized void doClose() throws Exception {
+		closeQueue();
 		queue = null;
 	}
 
+	/**
+	 * Releases the resources held by the queue, e.g. spill files, keeping the
+	 * items it holds in memory.
+	 */
+	protected void closeQueue() {
+		if (queue instanceof SpillQueue) {
+			try {
+				((SpillQueue<T>) queue).close();
+			} catch (IOException e) {
+				throw new ItemStreamException("Could not close spill queue", e);
+			}
+		}
+	}
+
 	/**
 	 * 
 	 * @param count number of items to read at once
@@ -44,6 +90,24 @@ public abstract class AbstractQueuePollableItemReader<T> extends AbstractPollabl
 		return queue.poll(timeout, unit);
 	}
 
+	/**
+	 * Waits for the first item then drains the items queued behind it
+	 */
+	@Override
+	protected List<T> doPoll(int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+		List<T> items = new ArrayList<>(maxItems);
+		if (queue instanceof BulkQueue) {
+			((BulkQueue<T>) queue).poll(items, maxItems, timeout, unit);
+		} else {
+			T item = queue.poll(timeout, unit);
+			if (item != null) {
+				items.add(item);
+				queue.drainTo(items, maxItems - 1);
+			}
+		}
+		return items;
+	}
+
 	public BlockingQueue<T> getQueue() {
 		return queue;
 	}
@@ -55,4 +119,82 @@ public abstract class AbstractQueuePollableItemReader<T> extends AbstractPollabl
 	public void setQueueCapacity(int queueCapacity) {
 		this.queueCapacity = queueCapacity;
 	}
+
+	public DataSize getQueueMemoryLimit() {
+		return queueMemoryLimit;
+	}
+
+	/**
+	 * 
+	 * @param limit maximum total size of queued items, as given by the item size
+	 *              function. Items are not queued beyond that limit until
+	 *              others are read, on top of the queue capacity in items.
+	 */
+	public void setQueueMemoryLimit(DataSize limit) {
+		this.queueMemoryLimit = limit;
+	}
+
+	public ToLongFunction<? super T> getItemSizeFunction() {
+		return itemSizeFunction;
+	}
+
+	/**
+	 * 
+	 * @param function size in bytes of a queued item, used to enforce the queue
+	 *                 memory limit
+	 */
+	public void setItemSizeFunction(ToLongFunction<? super T> function) {
+		this.itemSizeFunction = function;
+	}
+
+	public Path getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * 
+	 * @param directory directory where items beyond the queue capacity and memory
+	 *                  limit are spilled instead of waiting for room in the queue.
+	 *                  Replaces the queue factory with a {@link SpillQueue}.
+	 */
+	public void setSpillDirectory(Path directory) {
+		this.spillDirectory = directory;
+	}
+
+	public SpillCodec<T> getSpillCodec() {
+		return spillCodec;
+	}
+
+	public void setSpillCodec(SpillCodec<T> codec) {
+		this.spillCodec = codec;
+	}
+
+	public DataSize getSpillLimit() {
+		return spillLimit;
+	}
+
+	/**
+	 * 
+	 * @param limit maximum total size of spilled items, beyond which items are
+	 *              not queued until spilled ones are read. Zero for no limit.
+	 */
+	public void setSpillLimit(DataSize limit) {
+		this.spillLimit = limit;
+	}
+
+	public IntFunction<BlockingQueue<T>> getQueueFactory() {
+		return queueFactory;
+	}
+
+	/**
+	 * 
+	 * @param factory creates the queue of this reader given its capacity.
+	 *                Defaults to {@link BulkBlockingQueue}, use
+	 *                {@link RingBufferQueue} for a lock-free queue. Queues
+	 *                implementing {@link BulkQueue} transfer chunks in bulk.
+	 */
+	public void setQueueFactory(IntFunction<BlockingQueue<T>> factory) {
+		this.queueFactory = factory;
+	}
+
 }
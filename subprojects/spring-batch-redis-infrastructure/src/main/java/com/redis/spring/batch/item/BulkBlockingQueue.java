@@ -0,0 +1,289 @@
+package com.redis.spring.batch.item;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.util.Assert;
+
+/**
+ * Bounded blocking FIFO queue backed by a preallocated ring buffer, that
+ * transfers batches of items under a single lock acquisition:
+ * {@link #putAll(Collection)} inserts a whole chunk and
+ * {@link #poll(Collection, int, long, TimeUnit)} waits for the first item then
+ * drains the ones behind it.
+ */
+public class BulkBlockingQueue<T> extends AbstractQueue<T> implements BulkQueue<T> {
+
+	private final Object[] items;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	private int head;
+	private int count;
+
+	public BulkBlockingQueue(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero");
+		this.items = new Object[capacity];
+	}
+
+	/**
+	 * Inserts all the given items in order, waiting for space to become available
+	 * when the queue is full. Items are inserted as many at a time as capacity
+	 * allows.
+	 */
+	@Override
+	public void putAll(Collection<? extends T> c) throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		Iterator<? extends T> iterator = c.iterator();
+		lock.lockInterruptibly();
+		try {
+			while (iterator.hasNext()) {
+				while (count == items.length) {
+					notFull.await();
+				}
+				while (count < items.length && iterator.hasNext()) {
+					enqueue(iterator.next());
+				}
+				notEmpty.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int poll(Collection<? super T> c, int maxElements, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				if (nanos <= 0) {
+					return 0;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return drain(c, maxElements);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(T item) {
+		Assert.notNull(item, "Item must not be null");
+		lock.lock();
+		try {
+			if (count == items.length) {
+				return false;
+			}
+			enqueue(item);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		Assert.notNull(item, "Item must not be null");
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count == items.length) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+			enqueue(item);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(T item) throws InterruptedException {
+		Assert.notNull(item, "Item must not be null");
+		lock.lockInterruptibly();
+		try {
+			while (count == items.length) {
+				notFull.await();
+			}
+			enqueue(item);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T poll() {
+		lock.lock();
+		try {
+			if (count == 0) {
+				return null;
+			}
+			T item = dequeue();
+			notFull.signal();
+			return item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			T item = dequeue();
+			notFull.signal();
+			return item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				notEmpty.await();
+			}
+			T item = dequeue();
+			notFull.signal();
+			return item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T peek() {
+		lock.lock();
+		try {
+			return count == 0 ? null : (T) items[head];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c, int maxElements) {
+		Assert.notNull(c, "Collection must not be null");
+		Assert.isTrue(c != this, "Cannot drain queue to itself");
+		lock.lock();
+		try {
+			return drain(c, maxElements);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return items.length - count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			while (count > 0) {
+				dequeue();
+			}
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return an iterator over a snapshot of the queued items. Removal is not
+	 *         supported.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public Iterator<T> iterator() {
+		lock.lock();
+		try {
+			List<T> snapshot = new ArrayList<>(count);
+			for (int offset = 0; offset < count; offset++) {
+				snapshot.add((T) items[(head + offset) % items.length]);
+			}
+			return Collections.unmodifiableList(snapshot).iterator();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int drain(Collection<? super T> c, int maxElements) {
+		int drained = 0;
+		while (drained < maxElements && count > 0) {
+			c.add(dequeue());
+			drained++;
+		}
+		if (drained > 0) {
+			notFull.signalAll();
+		}
+		return drained;
+	}
+
+	private void enqueue(T item) {
+		Assert.notNull(item, "Item must not be null");
+		items[(head + count) % items.length] = item;
+		count++;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T dequeue() {
+		T item = (T) items[head];
+		items[head] = null;
+		head = (head + 1) % items.length;
+		count--;
+		return item;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.redis.spring.batch.item;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Blocking queue that can transfer batches of items at once, used to hand off
+ * chunks between the steps of an asynchronous reader.
+ */
+public interface BulkQueue<T> extends BlockingQueue<T> {
+
+	/**
+	 * Inserts all the given items in order, waiting for space to become available
+	 * when the queue is full. Each item returned by the collection's iterator is
+	 * inserted before {@code hasNext()} is called again, so that callers can tell
+	 * which items were inserted when the method is interrupted.
+	 */
+	void putAll(Collection<? extends T> c) throws InterruptedException;
+
+	/**
+	 * Waits up to the given time for an item to become available, then removes
+	 * it along with the items behind it.
+	 *
+	 * @param c           collection to transfer items to
+	 * @param maxElements maximum number of items to transfer
+	 * @return number of items transferred, zero if the specified waiting time
+	 *         elapses before an item is available
+	 */
+	int poll(Collection<? super T> c, int maxElements, long timeout, TimeUnit unit) throws InterruptedException;
+
+}
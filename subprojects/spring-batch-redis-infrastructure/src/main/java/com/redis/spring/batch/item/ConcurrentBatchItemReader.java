@@ -0,0 +1,118 @@
+package com.redis.spring.batch.item;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.util.Assert;
+
+/**
+ * Thread-safe reader handing out the items of a non thread-safe reader to
+ * concurrent threads. Items are read from the delegate in batches by one thread
+ * at a time and handed out through a lock-free queue, so that threads only
+ * contend on the delegate once per batch rather than for every item as with a
+ * synchronized reader.
+ * <p>
+ * Null is only returned once the delegate is exhausted and all its items were
+ * handed out, so that no item is left behind when a thread ends the step.
+ */
+public class ConcurrentBatchItemReader<T> implements ItemStreamReader<T> {
+
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	private final ItemReader<T> delegate;
+	private final int batchSize;
+	private final Queue<T> items = new ConcurrentLinkedQueue<>();
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private boolean exhausted;
+
+	public ConcurrentBatchItemReader(ItemReader<T> delegate) {
+		this(delegate, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * 
+	 * @param delegate  reader of the items
+	 * @param batchSize number of items read from the delegate at once
+	 */
+	public ConcurrentBatchItemReader(ItemReader<T> delegate, int batchSize) {
+		Assert.notNull(delegate, "Delegate reader must not be null");
+		Assert.isTrue(batchSize > 0, "Batch size must be greater than zero");
+		this.delegate = delegate;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		lock.lock();
+		try {
+			items.clear();
+			exhausted = false;
+		} finally {
+			lock.unlock();
+		}
+		if (delegate instanceof ItemStream) {
+			((ItemStream) delegate).open(executionContext);
+		}
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		if (delegate instanceof ItemStream) {
+			((ItemStream) delegate).update(executionContext);
+		}
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		if (delegate instanceof ItemStream) {
+			((ItemStream) delegate).close();
+		}
+	}
+
+	@Override
+	public T read() throws Exception {
+		T item = items.poll();
+		if (item != null) {
+			return item;
+		}
+		return readBatch();
+	}
+
+	/**
+	 * Reads the next batch from the delegate unless another thread did while
+	 * this one was waiting for the lock. Items are queued as they are read so
+	 * that none is lost if the delegate fails in the middle of a batch.
+	 */
+	private T readBatch() throws Exception {
+		lock.lock();
+		try {
+			T item;
+			// Other threads can take the whole batch before this one polls it
+			while ((item = items.poll()) == null && !exhausted) {
+				for (int index = 0; index < batchSize; index++) {
+					T next = delegate.read();
+					if (next == null) {
+						exhausted = true;
+						break;
+					}
+					items.add(next);
+				}
+			}
+			return item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+}
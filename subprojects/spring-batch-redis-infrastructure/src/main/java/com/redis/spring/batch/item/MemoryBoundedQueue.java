@@ -0,0 +1,335 @@
+package com.redis.spring.batch.item;
+
+import java.util.AbstractCollection;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import org.springframework.util.Assert;
+
+/**
+ * Queue decorator bounding the total size in bytes of queued items, as given
+ * by a size function. Producers wait while the memory limit is reached, on top
+ * of any capacity limit of the delegate queue. An item larger than the limit is
+ * still accepted when the queue holds no other item so that it cannot block
+ * forever.
+ * <p>
+ * The size function is called when an item is inserted and again when it is
+ * removed, so it must return the same size for the same item.
+ */
+public class MemoryBoundedQueue<T> extends AbstractQueue<T> implements BulkQueue<T> {
+
+	private final BlockingQueue<T> delegate;
+	private final long limit;
+	private final ToLongFunction<? super T> sizeFunction;
+	private final AtomicLong usage = new AtomicLong();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notFull = lock.newCondition();
+
+	/**
+	 *
+	 * @param delegate     queue holding the items
+	 * @param limit        maximum total size in bytes of queued items
+	 * @param sizeFunction size in bytes of an item
+	 */
+	public MemoryBoundedQueue(BlockingQueue<T> delegate, long limit, ToLongFunction<? super T> sizeFunction) {
+		Assert.notNull(delegate, "Delegate queue must not be null");
+		Assert.isTrue(limit > 0, "Memory limit must be greater than zero");
+		Assert.notNull(sizeFunction, "Size function must not be null");
+		this.delegate = delegate;
+		this.limit = limit;
+		this.sizeFunction = sizeFunction;
+	}
+
+	/**
+	 *
+	 * @return total size in bytes of queued items
+	 */
+	public long getUsage() {
+		return usage.get();
+	}
+
+	public long getLimit() {
+		return limit;
+	}
+
+	@Override
+	public boolean offer(T item) {
+		long size = sizeFunction.applyAsLong(item);
+		if (!tryReserve(size)) {
+			return false;
+		}
+		if (delegate.offer(item)) {
+			return true;
+		}
+		release(size);
+		return false;
+	}
+
+	@Override
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		long size = sizeFunction.applyAsLong(item);
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		if (!reserve(size, unit.toNanos(timeout))) {
+			return false;
+		}
+		if (delegate.offer(item, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+			return true;
+		}
+		release(size);
+		return false;
+	}
+
+	@Override
+	public void put(T item) throws InterruptedException {
+		long size = sizeFunction.applyAsLong(item);
+		reserve(size, Long.MAX_VALUE);
+		try {
+			delegate.put(item);
+		} catch (InterruptedException e) {
+			release(size);
+			throw e;
+		}
+	}
+
+	/**
+	 * Inserts the given items in order, reserving memory for as many items at a
+	 * time as the limit allows so that bulk insertion into the delegate queue is
+	 * preserved.
+	 */
+	@Override
+	public void putAll(Collection<? extends T> c) throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		List<T> batch = new ArrayList<>();
+		Iterator<? extends T> iterator = c.iterator();
+		while (iterator.hasNext()) {
+			T item = iterator.next();
+			long size = sizeFunction.applyAsLong(item);
+			if (!batch.isEmpty() && !tryReserve(size)) {
+				putBatch(batch);
+				batch.clear();
+			}
+			if (batch.isEmpty()) {
+				reserve(size, Long.MAX_VALUE);
+			}
+			batch.add(item);
+		}
+		putBatch(batch);
+	}
+
+	/**
+	 * Inserts the given items, whose memory is reserved, releasing the memory of
+	 * the items not inserted when interrupted.
+	 */
+	private void putBatch(List<T> batch) throws InterruptedException {
+		if (batch.isEmpty()) {
+			return;
+		}
+		int inserted = 0;
+		try {
+			if (delegate instanceof BulkQueue) {
+				InsertionTracker<T> tracker = new InsertionTracker<>(batch);
+				try {
+					((BulkQueue<T>) delegate).putAll(tracker);
+				} finally {
+					inserted = tracker.inserted;
+				}
+			} else {
+				for (T item : batch) {
+					delegate.put(item);
+					inserted++;
+				}
+			}
+		} finally {
+			long size = 0;
+			for (T item : batch.subList(inserted, batch.size())) {
+				size += sizeFunction.applyAsLong(item);
+			}
+			release(size);
+		}
+	}
+
+	@Override
+	public T poll() {
+		return released(delegate.poll());
+	}
+
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return released(delegate.poll(timeout, unit));
+	}
+
+	@Override
+	public int poll(Collection<? super T> c, int maxElements, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		List<T> items = new ArrayList<>(Math.min(maxElements, 1024));
+		if (delegate instanceof BulkQueue) {
+			((BulkQueue<T>) delegate).poll(items, maxElements, timeout, unit);
+		} else {
+			T item = delegate.poll(timeout, unit);
+			if (item != null) {
+				items.add(item);
+				delegate.drainTo(items, maxElements - 1);
+			}
+		}
+		return transfer(items, c);
+	}
+
+	@Override
+	public T take() throws InterruptedException {
+		return released(delegate.take());
+	}
+
+	@Override
+	public T peek() {
+		return delegate.peek();
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c, int maxElements) {
+		Assert.isTrue(c != this, "Cannot drain queue to itself");
+		List<T> items = new ArrayList<>();
+		delegate.drainTo(items, maxElements);
+		return transfer(items, c);
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	/**
+	 *
+	 * @return remaining capacity of the delegate queue, or zero if the memory
+	 *         limit is reached
+	 */
+	@Override
+	public int remainingCapacity() {
+		return usage.get() >= limit ? 0 : delegate.remainingCapacity();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return delegate.iterator();
+	}
+
+	private int transfer(List<T> items, Collection<? super T> c) {
+		long size = 0;
+		for (T item : items) {
+			size += sizeFunction.applyAsLong(item);
+			c.add(item);
+		}
+		release(size);
+		return items.size();
+	}
+
+	private T released(T item) {
+		if (item != null) {
+			release(sizeFunction.applyAsLong(item));
+		}
+		return item;
+	}
+
+	private boolean tryReserve(long size) {
+		lock.lock();
+		try {
+			return reserve(size);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean reserve(long size, long nanos) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (!reserve(size)) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notFull.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean reserve(long size) {
+		long current = usage.get();
+		if (current > 0 && current + size > limit) {
+			return false;
+		}
+		usage.addAndGet(size);
+		return true;
+	}
+
+	private void release(long size) {
+		if (size == 0) {
+			return;
+		}
+		usage.addAndGet(-size);
+		lock.lock();
+		try {
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Counts the items inserted by a bulk queue, i.e. the items returned by the
+	 * iterator before the following call to {@code hasNext()}.
+	 */
+	private static class InsertionTracker<T> extends AbstractCollection<T> {
+
+		private final List<T> items;
+		private int taken;
+		private int inserted;
+
+		public InsertionTracker(List<T> items) {
+			this.items = items;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return new Iterator<T>() {
+
+				@Override
+				public boolean hasNext() {
+					inserted = taken;
+					return taken < items.size();
+				}
+
+				@Override
+				public T next() {
+					if (taken >= items.size()) {
+						throw new NoSuchElementException();
+					}
+					return items.get(taken++);
+				}
+
+			};
+		}
+
+		@Override
+		public int size() {
+			return items.size();
+		}
+
+	}
+
+}
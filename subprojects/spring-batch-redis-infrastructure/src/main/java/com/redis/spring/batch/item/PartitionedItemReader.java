@@ -0,0 +1,242 @@
+package com.redis.spring.batch.item;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.Assert;
+
+/**
+ * Pollable reader handing out the items of a pollable reader to concurrent
+ * chunks so that items of the same partition, e.g. events of the same key, are
+ * read, processed and written in the order of the delegate.
+ * <p>
+ * Items are routed by the partition function to one of a fixed number of
+ * partitions. Each chunk claims a partition in
+ * {@link #beforeChunk(ChunkContext)} and only reads items of that partition
+ * until it is committed, so that a partition is never read by two chunks at a
+ * time. A chunk that is rolled back or not complete keeps its partition, as
+ * Spring Batch processes it again with the same items.
+ * <p>
+ * Must be registered as a chunk listener of the step reading it, with at least
+ * as many partitions as chunks processed concurrently.
+ */
+public class PartitionedItemReader<T> implements PollableItemReader<T>, ChunkListener {
+
+	private static final String PARTITION_ATTRIBUTE = PartitionedItemReader.class.getName() + ".partition";
+
+	private final PollableItemReader<T> delegate;
+	private final ToIntFunction<T> partitionFunction;
+	private final List<Deque<T>> partitions;
+	private final boolean[] claimed;
+	private final int capacity;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+	private final ThreadLocal<Integer> currentPartition = new ThreadLocal<>();
+
+	private int size;
+	private boolean polling;
+
+	/**
+	 *
+	 * @param delegate          reader of the items
+	 * @param partitionFunction function returning a hash of the part of an item,
+	 *                          e.g. its key, whose order must be kept
+	 * @param partitions        number of partitions
+	 * @param capacity          maximum number of items read from the delegate
+	 *                          but not yet from their partition
+	 */
+	public PartitionedItemReader(PollableItemReader<T> delegate, ToIntFunction<T> partitionFunction, int partitions,
+			int capacity) {
+		Assert.notNull(delegate, "Delegate reader must not be null");
+		Assert.notNull(partitionFunction, "Partition function must not be null");
+		Assert.isTrue(partitions > 0, "Partitions must be strictly positive");
+		Assert.isTrue(capacity > 0, "Capacity must be strictly positive");
+		this.delegate = delegate;
+		this.partitionFunction = partitionFunction;
+		this.partitions = new ArrayList<>(partitions);
+		for (int index = 0; index < partitions; index++) {
+			this.partitions.add(new ArrayDeque<>());
+		}
+		this.claimed = new boolean[partitions];
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void open(ExecutionContext executionContext) throws ItemStreamException {
+		lock.lock();
+		try {
+			partitions.forEach(Deque::clear);
+			for (int index = 0; index < claimed.length; index++) {
+				claimed[index] = false;
+			}
+			size = 0;
+		} finally {
+			lock.unlock();
+		}
+		delegate.open(executionContext);
+	}
+
+	@Override
+	public void update(ExecutionContext executionContext) throws ItemStreamException {
+		delegate.update(executionContext);
+	}
+
+	@Override
+	public void close() throws ItemStreamException {
+		delegate.close();
+	}
+
+	@Override
+	public void beforeChunk(ChunkContext context) {
+		Integer partition = (Integer) context.getAttribute(PARTITION_ATTRIBUTE);
+		if (partition == null) {
+			partition = claim();
+			context.setAttribute(PARTITION_ATTRIBUTE, partition);
+		}
+		currentPartition.set(partition);
+	}
+
+	@Override
+	public void afterChunk(ChunkContext context) {
+		currentPartition.remove();
+		if (context.isComplete()) {
+			release((Integer) context.removeAttribute(PARTITION_ATTRIBUTE));
+		}
+	}
+
+	@Override
+	public void afterChunkError(ChunkContext context) {
+		// The chunk is processed again with the same context, which keeps its
+		// partition
+		currentPartition.remove();
+	}
+
+	/**
+	 * Claims the free partition holding the most items.
+	 */
+	private int claim() {
+		lock.lock();
+		try {
+			while (true) {
+				int partition = -1;
+				for (int index = 0; index < claimed.length; index++) {
+					if (!claimed[index] && (partition < 0
+							|| partitions.get(index).size() > partitions.get(partition).size())) {
+						partition = index;
+					}
+				}
+				if (partition >= 0) {
+					claimed[partition] = true;
+					return partition;
+				}
+				changed.await();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a partition", e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void release(Integer partition) {
+		if (partition == null) {
+			return;
+		}
+		lock.lock();
+		try {
+			claimed[partition] = false;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T read() {
+		throw new UnsupportedOperationException("Partitioned reader must be polled");
+	}
+
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		List<T> items = poll(1, timeout, unit);
+		return items.isEmpty() ? null : items.get(0);
+	}
+
+	/**
+	 * Reads up to the given number of items of the partition claimed by the
+	 * current chunk. When that partition is empty, items are polled from the
+	 * delegate and routed to their partitions, unless another chunk is already
+	 * polling it or the partitions are full.
+	 */
+	@Override
+	public List<T> poll(int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+		Integer partition = currentPartition.get();
+		Assert.state(partition != null, "No partition claimed: reader must be registered as a chunk listener");
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			Deque<T> items = partitions.get(partition);
+			while (items.isEmpty()) {
+				long nanos = deadline - System.nanoTime();
+				if (nanos <= 0) {
+					return Collections.emptyList();
+				}
+				if (polling || size >= capacity) {
+					changed.awaitNanos(nanos);
+				} else {
+					fill(nanos);
+				}
+			}
+			List<T> result = new ArrayList<>(Math.min(maxItems, items.size()));
+			while (result.size() < maxItems && !items.isEmpty()) {
+				result.add(items.poll());
+			}
+			if (size >= capacity) {
+				changed.signalAll();
+			}
+			size -= result.size();
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Polls the delegate without holding the lock so that other chunks keep
+	 * reading their partitions meanwhile.
+	 */
+	private void fill(long nanos) throws InterruptedException {
+		int maxItems = capacity - size;
+		polling = true;
+		lock.unlock();
+		List<T> items = Collections.emptyList();
+		try {
+			items = delegate.poll(maxItems, nanos, TimeUnit.NANOSECONDS);
+		} finally {
+			lock.lock();
+			polling = false;
+			for (T item : items) {
+				partitions.get(Math.floorMod(partitionFunction.applyAsInt(item), partitions.size())).add(item);
+			}
+			size += items.size();
+			changed.signalAll();
+		}
+	}
+
+	public PollableItemReader<T> getDelegate() {
+		return delegate;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.redis.spring.batch.item;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.springframework.batch.item.ItemStreamReader;
@@ -19,4 +21,24 @@ public interface PollableItemReader<T> extends ItemStreamReader<T> {
 	 */
 	T poll(long timeout, TimeUnit unit) throws InterruptedException;
 
+	/**
+	 * Reads up to the given number of items, waiting up to the given duration for
+	 * the first one. Readers able to transfer items in bulk read the items
+	 * already available behind the first one without waiting, others only read
+	 * one item.
+	 * 
+	 * @param maxItems maximum number of items to read
+	 * @param timeout  how long to wait for the first item, in units of
+	 *                 {@code unit}
+	 * @param unit     a {@code TimeUnit} determining how to interpret the
+	 *                 {@code timeout} parameter
+	 * @throws InterruptedException if interrupted while waiting
+	 * @return items read, empty if the specified waiting time elapses before an
+	 *         item is available
+	 */
+	default List<T> poll(int maxItems, long timeout, TimeUnit unit) throws InterruptedException {
+		T item = poll(timeout, unit);
+		return item == null ? Collections.emptyList() : Collections.singletonList(item);
+	}
+
 }
@@ -13,9 +13,10 @@ import org.springframework.batch.item.ItemWriter;
 public class ProcessingItemWriter<I, O> implements ItemStreamWriter<I> {
 
 	private final ItemProcessor<Iterable<? extends I>, List<O>> processor;
-	private final ItemWriter<O> writer;
+	private final ItemWriter<? super O> writer;
 
-	public ProcessingItemWriter(ItemProcessor<Iterable<? extends I>, List<O>> processor, ItemWriter<O> writer) {
+	public ProcessingItemWriter(ItemProcessor<Iterable<? extends I>, List<O>> processor,
+			ItemWriter<? super O> writer) {
 		this.processor = processor;
 		this.writer = writer;
 	}
@@ -15,10 +15,13 @@ public class QueueItemWriter<T> implements ItemWriter<T> {
 
 	@Override
 	public void write(Chunk<? extends T> chunk) throws Exception {
+		if (queue instanceof BulkQueue) {
+			((BulkQueue<T>) queue).putAll(chunk.getItems());
+			return;
+		}
 		for (T element : chunk) {
 			queue.put(element);
 		}
-
 	}
 
 }
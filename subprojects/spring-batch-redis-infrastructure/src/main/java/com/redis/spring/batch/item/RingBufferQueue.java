@@ -0,0 +1,232 @@
+package com.redis.spring.batch.item;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * Bounded lock-free FIFO queue backed by a preallocated ring buffer. Each slot
+ * carries a sequence number telling producers whether it is free and consumers
+ * whether it is filled, so any number of producer and consumer threads can
+ * claim slots with a single compare-and-set and no node is allocated per item.
+ * <p>
+ * Blocking operations wait according to the {@link WaitStrategy} of the queue.
+ * Capacity is rounded up to the next power of two.
+ */
+public class RingBufferQueue<T> extends AbstractQueue<T> implements BulkQueue<T> {
+
+	public static final WaitStrategy DEFAULT_WAIT_STRATEGY = WaitStrategy.PARK;
+
+	private final AtomicReferenceArray<T> items;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final WaitStrategy waitStrategy;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+
+	public RingBufferQueue(int capacity) {
+		this(capacity, DEFAULT_WAIT_STRATEGY);
+	}
+
+	public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero");
+		Assert.notNull(waitStrategy, "Wait strategy must not be null");
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.items = new AtomicReferenceArray<>(size);
+		this.sequences = new AtomicLongArray(size);
+		for (int index = 0; index < size; index++) {
+			sequences.set(index, index);
+		}
+		this.mask = size - 1;
+		this.waitStrategy = waitStrategy;
+	}
+
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public boolean offer(T item) {
+		Assert.notNull(item, "Item must not be null");
+		long position = tail.get();
+		for (;;) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					items.lazySet(index, item);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	@Override
+	public T poll() {
+		long position = head.get();
+		for (;;) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					T item = items.get(index);
+					items.lazySet(index, null);
+					sequences.set(index, position + mask + 1);
+					return item;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = head.get();
+			}
+		}
+	}
+
+	@Override
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!offer(item)) {
+			if (System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+			idle();
+		}
+		return true;
+	}
+
+	@Override
+	public void put(T item) throws InterruptedException {
+		while (!offer(item)) {
+			idle();
+		}
+	}
+
+	@Override
+	public void putAll(Collection<? extends T> c) throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		for (T item : c) {
+			put(item);
+		}
+	}
+
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		T item;
+		while ((item = poll()) == null) {
+			if (System.nanoTime() - deadline >= 0) {
+				return null;
+			}
+			idle();
+		}
+		return item;
+	}
+
+	@Override
+	public int poll(Collection<? super T> c, int maxElements, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		T item = poll(timeout, unit);
+		if (item == null) {
+			return 0;
+		}
+		c.add(item);
+		return 1 + drainTo(c, maxElements - 1);
+	}
+
+	@Override
+	public T take() throws InterruptedException {
+		T item;
+		while ((item = poll()) == null) {
+			idle();
+		}
+		return item;
+	}
+
+	private void idle() throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		waitStrategy.idle();
+	}
+
+	@Override
+	public T peek() {
+		long position = head.get();
+		int index = (int) position & mask;
+		return sequences.get(index) == position + 1 ? items.get(index) : null;
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c, int maxElements) {
+		Assert.notNull(c, "Collection must not be null");
+		Assert.isTrue(c != this, "Cannot drain queue to itself");
+		int drained = 0;
+		T item;
+		while (drained < maxElements && (item = poll()) != null) {
+			c.add(item);
+			drained++;
+		}
+		return drained;
+	}
+
+	/**
+	 *
+	 * @return number of items in the queue, which is only an estimate while other
+	 *         threads are offering or polling items
+	 */
+	@Override
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, mask + 1L));
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return mask + 1 - size();
+	}
+
+	/**
+	 *
+	 * @return an iterator over a snapshot of the items filled at the time of the
+	 *         call. Removal is not supported.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		List<T> snapshot = new ArrayList<>();
+		long end = tail.get();
+		for (long position = head.get(); position < end; position++) {
+			int index = (int) position & mask;
+			T item = items.get(index);
+			if (item != null && sequences.get(index) == position + 1) {
+				snapshot.add(item);
+			}
+		}
+		return Collections.unmodifiableList(snapshot).iterator();
+	}
+
+}
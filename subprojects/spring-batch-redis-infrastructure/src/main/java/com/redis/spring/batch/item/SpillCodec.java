@@ -0,0 +1,12 @@
+package com.redis.spring.batch.item;
+
+/**
+ * Binary encoding of the items spilled to disk by a {@link SpillQueue}.
+ */
+public interface SpillCodec<T> {
+
+	byte[] encode(T item);
+
+	T decode(byte[] bytes);
+
+}
@@ -0,0 +1,187 @@
+package com.redis.spring.batch.item;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * FIFO of byte records stored in segment files. Records are appended to the
+ * last segment and read from the first one, which is deleted once all its
+ * records are read. Each record is its length followed by its bytes. Segments
+ * are accessed with positional reads and writes on an open file channel, which
+ * is closed before the file is deleted so that no mapping or handle outlives
+ * it. Not thread-safe.
+ */
+class SpillFile implements AutoCloseable {
+
+	private static final String SEGMENT_FORMAT = "%020d.spill";
+
+	private final Path directory;
+	private final int segmentSize;
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+
+	private long segmentCount;
+	private long size;
+	private long bytes;
+
+	SpillFile(Path directory, int segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @return total size in bytes of the records, including their length headers
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void append(byte[] record) throws IOException {
+		int length = Integer.BYTES + record.length;
+		Segment segment = segments.peekLast();
+		if (segment == null || segment.capacity - segment.writePosition < length) {
+			segment = newSegment(Math.max(segmentSize, length));
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.putInt(record.length).put(record).flip();
+		while (buffer.hasRemaining()) {
+			segment.channel.write(buffer, segment.writePosition + buffer.position());
+		}
+		segment.writePosition += length;
+		size++;
+		bytes += length;
+	}
+
+	/**
+	 *
+	 * @return the first record, or null if there is none
+	 */
+	public byte[] read() throws IOException {
+		if (size == 0) {
+			return null;
+		}
+		Segment segment = segments.peekFirst();
+		if (segment.readPosition == segment.writePosition) {
+			deleteFirst();
+			segment = segments.peekFirst();
+		}
+		byte[] record = read(segment, segment.readPosition);
+		segment.readPosition += Integer.BYTES + record.length;
+		size--;
+		bytes -= Integer.BYTES + record.length;
+		if (size == 0) {
+			// Reuse the last segment for the next burst
+			while (segments.size() > 1) {
+				deleteFirst();
+			}
+			segment = segments.peekFirst();
+			segment.readPosition = 0;
+			segment.writePosition = 0;
+		}
+		return record;
+	}
+
+	/**
+	 *
+	 * @return the first record without removing it, or null if there is none
+	 */
+	public byte[] peek() throws IOException {
+		for (Segment segment : segments) {
+			if (segment.readPosition < segment.writePosition) {
+				return read(segment, segment.readPosition);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Passes each record in order to the given consumer without removing it.
+	 */
+	public void forEach(Consumer<byte[]> consumer) throws IOException {
+		for (Segment segment : segments) {
+			int position = segment.readPosition;
+			while (position < segment.writePosition) {
+				byte[] record = read(segment, position);
+				position += Integer.BYTES + record.length;
+				consumer.accept(record);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		while (!segments.isEmpty()) {
+			deleteFirst();
+		}
+		size = 0;
+		bytes = 0;
+	}
+
+	private byte[] read(Segment segment, int position) throws IOException {
+		header.clear();
+		readFully(segment, header, position);
+		byte[] record = new byte[header.getInt(0)];
+		readFully(segment, ByteBuffer.wrap(record), position + Integer.BYTES);
+		return record;
+	}
+
+	private void readFully(Segment segment, ByteBuffer buffer, int position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (segment.channel.read(buffer, (long) position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of spill segment " + segment.path);
+			}
+		}
+	}
+
+	private Segment newSegment(int capacity) throws IOException {
+		Path path = directory.resolve(String.format(SEGMENT_FORMAT, segmentCount++));
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		Segment segment = new Segment(path, channel, capacity);
+		segments.addLast(segment);
+		return segment;
+	}
+
+	private void deleteFirst() throws IOException {
+		Segment segment = segments.removeFirst();
+		try {
+			segment.channel.close();
+		} finally {
+			Files.deleteIfExists(segment.path);
+		}
+	}
+
+	private static class Segment {
+
+		private final Path path;
+		private final FileChannel channel;
+		private final int capacity;
+		private int readPosition;
+		private int writePosition;
+
+		public Segment(Path path, FileChannel channel, int capacity) {
+			this.path = path;
+			this.channel = channel;
+			this.capacity = capacity;
+		}
+
+	}
+
+}
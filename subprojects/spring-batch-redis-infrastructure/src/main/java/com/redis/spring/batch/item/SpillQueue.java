@@ -0,0 +1,436 @@
+package com.redis.spring.batch.item;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.util.Assert;
+
+/**
+ * FIFO queue holding up to a given number of items (and optionally bytes) in
+ * memory and spilling the items beyond that limit to segment files, encoded
+ * with a {@link SpillCodec}. Producers only wait once spilled items reach the
+ * spill limit, so bursts are absorbed without heap growth while consumers fall
+ * behind, and disk usage stays bounded.
+ * <p>
+ * Once an item is spilled, following items are spilled too until consumers
+ * have read all spilled items back, which preserves insertion order. Segment
+ * files are created in a temporary directory under the given directory and
+ * deleted when read or when the queue is closed.
+ */
+public class SpillQueue<T> extends AbstractQueue<T> implements BulkQueue<T>, AutoCloseable {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	public static final long NO_SPILL_LIMIT = 0;
+
+	private final Path directory;
+	private final SpillCodec<T> codec;
+	private final int capacity;
+	private final long memoryLimit;
+	private final ToLongFunction<? super T> sizeFunction;
+	private final int segmentSize;
+	private final long spillLimit;
+	private final Deque<T> items = new ArrayDeque<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	private long memoryUsage;
+	private Path spillDirectory;
+	private SpillFile spill;
+
+	/**
+	 *
+	 * @param directory directory of the spill files
+	 * @param codec     encodes spilled items
+	 * @param capacity  maximum number of items held in memory
+	 */
+	public SpillQueue(Path directory, SpillCodec<T> codec, int capacity) {
+		this(directory, codec, capacity, 0, null, DEFAULT_SEGMENT_SIZE, NO_SPILL_LIMIT);
+	}
+
+	/**
+	 *
+	 * @param directory    directory of the spill files
+	 * @param codec        encodes spilled items
+	 * @param capacity     maximum number of items held in memory
+	 * @param memoryLimit  maximum total size in bytes of items held in memory, 0
+	 *                     for no limit
+	 * @param sizeFunction size in bytes of an item, required with a memory limit
+	 * @param segmentSize  size in bytes of each spill file
+	 * @param spillLimit   maximum total size in bytes of spilled items beyond
+	 *                     which producers wait for items to be read,
+	 *                     {@link #NO_SPILL_LIMIT} for no limit
+	 */
+	public SpillQueue(Path directory, SpillCodec<T> codec, int capacity, long memoryLimit,
+			ToLongFunction<? super T> sizeFunction, int segmentSize, long spillLimit) {
+		Assert.notNull(directory, "Directory must not be null");
+		Assert.notNull(codec, "Codec must not be null");
+		Assert.isTrue(capacity > 0, "Capacity must be greater than zero");
+		Assert.isTrue(memoryLimit == 0 || sizeFunction != null, "Size function required with a memory limit");
+		Assert.isTrue(segmentSize > Integer.BYTES, "Segment size too small");
+		Assert.isTrue(spillLimit >= 0, "Spill limit must not be negative");
+		this.directory = directory;
+		this.codec = codec;
+		this.capacity = capacity;
+		this.memoryLimit = memoryLimit;
+		this.sizeFunction = sizeFunction;
+		this.segmentSize = segmentSize;
+		this.spillLimit = spillLimit;
+	}
+
+	/**
+	 *
+	 * @return number of items currently spilled to disk
+	 */
+	public long getSpilledCount() {
+		lock.lock();
+		try {
+			return spill == null ? 0 : spill.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return total size in bytes of the items currently spilled to disk
+	 */
+	public long getSpilledBytes() {
+		lock.lock();
+		try {
+			return spill == null ? 0 : spill.bytes();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(T item) {
+		Assert.notNull(item, "Item must not be null");
+		lock.lock();
+		try {
+			return insert(item, 0);
+		} catch (InterruptedException e) {
+			// Not reached: insert does not wait without a timeout
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+		Assert.notNull(item, "Item must not be null");
+		lock.lockInterruptibly();
+		try {
+			return insert(item, unit.toNanos(timeout));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(T item) throws InterruptedException {
+		Assert.notNull(item, "Item must not be null");
+		lock.lockInterruptibly();
+		try {
+			insert(item, Long.MAX_VALUE);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void putAll(Collection<? extends T> c) throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		lock.lockInterruptibly();
+		try {
+			for (T item : c) {
+				Assert.notNull(item, "Item must not be null");
+				insert(item, Long.MAX_VALUE);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Inserts the item in memory if there is room and nothing is spilled, or
+	 * spills it, waiting up to the given time for spilled items to be read if the
+	 * spill limit is reached. Must be called with the lock held.
+	 * 
+	 * @return false if the waiting time elapsed before the item was inserted
+	 */
+	private boolean insert(T item, long nanos) throws InterruptedException {
+		byte[] record = null;
+		for (;;) {
+			if (isSpillEmpty() && items.size() < capacity) {
+				long size = memoryLimit > 0 ? sizeFunction.applyAsLong(item) : 0;
+				if (memoryLimit == 0 || items.isEmpty() || memoryUsage + size <= memoryLimit) {
+					items.addLast(item);
+					memoryUsage += size;
+					notEmpty.signal();
+					return true;
+				}
+			}
+			if (record == null) {
+				record = codec.encode(item);
+			}
+			if (!isSpillFull(record)) {
+				spill(record);
+				notEmpty.signal();
+				return true;
+			}
+			if (nanos <= 0) {
+				return false;
+			}
+			nanos = notFull.awaitNanos(nanos);
+		}
+	}
+
+	/**
+	 * 
+	 * @return true if spilling the given record would exceed the spill limit. A
+	 *         record is always accepted when nothing is spilled.
+	 */
+	private boolean isSpillFull(byte[] record) {
+		return spillLimit > 0 && !isSpillEmpty() && spill.bytes() + Integer.BYTES + record.length > spillLimit;
+	}
+
+	private void spill(byte[] record) {
+		try {
+			if (spill == null) {
+				Files.createDirectories(directory);
+				spillDirectory = Files.createTempDirectory(directory, "queue");
+				spill = new SpillFile(spillDirectory, segmentSize);
+			}
+			spill.append(record);
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not spill item to " + directory, e);
+		}
+	}
+
+	private boolean isSpillEmpty() {
+		return spill == null || spill.isEmpty();
+	}
+
+	/**
+	 * Removes the head of the queue: in-memory items come first as they were all
+	 * inserted before the spilled ones.
+	 */
+	private T dequeue() {
+		T item = items.pollFirst();
+		if (item != null) {
+			if (memoryLimit > 0) {
+				memoryUsage -= sizeFunction.applyAsLong(item);
+			}
+			return item;
+		}
+		if (isSpillEmpty()) {
+			return null;
+		}
+		try {
+			T spilled = codec.decode(spill.read());
+			if (spillLimit > 0) {
+				notFull.signalAll();
+			}
+			return spilled;
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not read spilled item from " + directory, e);
+		}
+	}
+
+	@Override
+	public T poll() {
+		lock.lock();
+		try {
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (isEmptyLocked()) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int poll(Collection<? super T> c, int maxElements, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		Assert.notNull(c, "Collection must not be null");
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (isEmptyLocked()) {
+				if (nanos <= 0) {
+					return 0;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return drain(c, maxElements);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (isEmptyLocked()) {
+				notEmpty.await();
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public T peek() {
+		lock.lock();
+		try {
+			T item = items.peekFirst();
+			if (item != null || isSpillEmpty()) {
+				return item;
+			}
+			return codec.decode(spill.peek());
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not read spilled item from " + directory, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super T> c, int maxElements) {
+		Assert.notNull(c, "Collection must not be null");
+		Assert.isTrue(c != this, "Cannot drain queue to itself");
+		lock.lock();
+		try {
+			return drain(c, maxElements);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private int drain(Collection<? super T> c, int maxElements) {
+		int drained = 0;
+		T item;
+		while (drained < maxElements && (item = dequeue()) != null) {
+			c.add(item);
+			drained++;
+		}
+		return drained;
+	}
+
+	private boolean isEmptyLocked() {
+		return items.isEmpty() && isSpillEmpty();
+	}
+
+	/**
+	 * 
+	 * @return true if there are no items in memory and none spilled
+	 */
+	@Override
+	public boolean isEmpty() {
+		lock.lock();
+		try {
+			return isEmptyLocked();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			long size = items.size() + (spill == null ? 0 : spill.size());
+			return (int) Math.min(size, Integer.MAX_VALUE);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 *
+	 * @return an iterator over a snapshot of the queued items, decoding spilled
+	 *         ones. Removal is not supported.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		lock.lock();
+		try {
+			List<T> snapshot = new ArrayList<>(items);
+			if (spill != null) {
+				spill.forEach(b -> snapshot.add(codec.decode(b)));
+			}
+			return Collections.unmodifiableList(snapshot).iterator();
+		} catch (IOException e) {
+			throw new ItemStreamException("Could not read spilled items from " + directory, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes spill files. Spilled items are lost, so a reader that commits a
+	 * source position once its items are read, like a key journal, must only do
+	 * so when {@link #isEmpty()} is true: spilled items then cannot belong to a
+	 * committed position and are replayed from the source instead.
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (spill != null) {
+				spill.close();
+				Files.deleteIfExists(spillDirectory);
+				spill = null;
+			}
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
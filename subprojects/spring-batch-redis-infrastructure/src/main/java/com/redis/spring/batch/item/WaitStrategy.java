@@ -0,0 +1,47 @@
+package com.redis.spring.batch.item;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for a lock-free queue to change state: spinning gives
+ * the lowest latency at the cost of a busy core, parking frees the core but
+ * adds wake-up latency.
+ */
+public enum WaitStrategy {
+
+	SPIN {
+
+		@Override
+		public void idle() {
+			Thread.onSpinWait();
+		}
+
+	},
+
+	YIELD {
+
+		@Override
+		public void idle() {
+			Thread.yield();
+		}
+
+	},
+
+	PARK {
+
+		@Override
+		public void idle() {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+
+	};
+
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Waits once before the queue is checked again
+	 */
+	public abstract void idle();
+
+}
@@ -0,0 +1,186 @@
+package com.redis.spring.batch.step;
+
+import java.time.Duration;
+
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.util.Assert;
+
+/**
+ * Tunes the flush interval and chunk size of a flushing step from the observed
+ * item arrival rate and write latency, instead of using a fixed interval.
+ * <p>
+ * The flush interval is the part of the latency target left once a chunk is
+ * written: the latency target minus the average write latency, within the
+ * interval bounds. The chunk size is the number of items expected to arrive
+ * during that interval, or during a write once the write latency reaches the
+ * target, within the chunk size bounds. With few items chunks of the minimum
+ * size are flushed as soon as they are read, and under heavy load chunks grow
+ * up to the maximum size so that writes are amortized.
+ * <p>
+ * Averages are exponentially weighted so that the policy follows load changes.
+ * Write latency is measured by registering the policy as a write listener,
+ * which the flushing step builders do.
+ */
+public class AdaptiveFlushPolicy implements ItemWriteListener<Object> {
+
+	public static final Duration DEFAULT_LATENCY_TARGET = Duration.ofMillis(100);
+	public static final Duration DEFAULT_MIN_FLUSH_INTERVAL = Duration.ofMillis(1);
+	public static final Duration DEFAULT_MAX_FLUSH_INTERVAL = Duration.ofSeconds(1);
+	public static final int DEFAULT_MIN_CHUNK_SIZE = 1;
+	public static final int DEFAULT_MAX_CHUNK_SIZE = 1000;
+	public static final double DEFAULT_SMOOTHING = 0.2;
+
+	private final ThreadLocal<Long> writeStart = new ThreadLocal<>();
+
+	private Duration latencyTarget = DEFAULT_LATENCY_TARGET;
+	private Duration minFlushInterval = DEFAULT_MIN_FLUSH_INTERVAL;
+	private Duration maxFlushInterval = DEFAULT_MAX_FLUSH_INTERVAL;
+	private int minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+	private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+	private double smoothing = DEFAULT_SMOOTHING;
+
+	// Items per nanosecond, negative until the first chunk is read
+	private double arrivalRate = -1;
+	// Nanoseconds, negative until the first chunk is written
+	private double writeLatency = -1;
+
+	/**
+	 *
+	 * @return flush interval in nanoseconds
+	 */
+	public synchronized long getFlushInterval() {
+		long interval = latencyTarget.toNanos() - (writeLatency < 0 ? 0 : (long) writeLatency);
+		return Math.max(minFlushInterval.toNanos(), Math.min(maxFlushInterval.toNanos(), interval));
+	}
+
+	public synchronized int getChunkSize() {
+		if (arrivalRate < 0) {
+			return maxChunkSize;
+		}
+		// Writes at or above the latency target leave no interval: chunks must then
+		// hold the items arriving during a write to keep up
+		double window = writeLatency >= latencyTarget.toNanos() ? writeLatency : getFlushInterval();
+		double size = Math.ceil(arrivalRate * window);
+		return (int) Math.max(minChunkSize, Math.min(maxChunkSize, size));
+	}
+
+	/**
+	 * Records that the given number of items were read over the given duration.
+	 */
+	public synchronized void chunkRead(int items, long nanos) {
+		if (nanos <= 0) {
+			return;
+		}
+		arrivalRate = average(arrivalRate, (double) items / nanos);
+	}
+
+	/**
+	 * Records that a chunk was written in the given duration.
+	 */
+	public synchronized void chunkWritten(long nanos) {
+		writeLatency = average(writeLatency, nanos);
+	}
+
+	private double average(double average, double value) {
+		return average < 0 ? value : average + smoothing * (value - average);
+	}
+
+	/**
+	 *
+	 * @return average number of items read per second
+	 */
+	public synchronized double getArrivalRate() {
+		return arrivalRate < 0 ? 0 : arrivalRate * 1e9;
+	}
+
+	public synchronized Duration getWriteLatency() {
+		return Duration.ofNanos(writeLatency < 0 ? 0 : (long) writeLatency);
+	}
+
+	@Override
+	public void beforeWrite(Chunk<? extends Object> items) {
+		writeStart.set(System.nanoTime());
+	}
+
+	@Override
+	public void afterWrite(Chunk<? extends Object> items) {
+		written();
+	}
+
+	@Override
+	public void onWriteError(Exception exception, Chunk<? extends Object> items) {
+		written();
+	}
+
+	private void written() {
+		Long start = writeStart.get();
+		if (start != null) {
+			writeStart.remove();
+			chunkWritten(System.nanoTime() - start);
+		}
+	}
+
+	public Duration getLatencyTarget() {
+		return latencyTarget;
+	}
+
+	/**
+	 *
+	 * @param target maximum time an item should wait between being read and
+	 *               being written
+	 */
+	public void setLatencyTarget(Duration target) {
+		Assert.isTrue(target != null && !target.isNegative(), "Latency target must not be negative");
+		this.latencyTarget = target;
+	}
+
+	public Duration getMinFlushInterval() {
+		return minFlushInterval;
+	}
+
+	public void setMinFlushInterval(Duration interval) {
+		this.minFlushInterval = interval;
+	}
+
+	public Duration getMaxFlushInterval() {
+		return maxFlushInterval;
+	}
+
+	public void setMaxFlushInterval(Duration interval) {
+		this.maxFlushInterval = interval;
+	}
+
+	public int getMinChunkSize() {
+		return minChunkSize;
+	}
+
+	public void setMinChunkSize(int size) {
+		Assert.isTrue(size > 0, "Min chunk size must be greater than zero");
+		this.minChunkSize = size;
+	}
+
+	public int getMaxChunkSize() {
+		return maxChunkSize;
+	}
+
+	public void setMaxChunkSize(int size) {
+		Assert.isTrue(size > 0, "Max chunk size must be greater than zero");
+		this.maxChunkSize = size;
+	}
+
+	public double getSmoothing() {
+		return smoothing;
+	}
+
+	/**
+	 *
+	 * @param smoothing weight between 0 and 1 of the latest observation in the
+	 *                  averages
+	 */
+	public void setSmoothing(double smoothing) {
+		Assert.isTrue(smoothing > 0 && smoothing <= 1, "Smoothing must be between 0 and 1");
+		this.smoothing = smoothing;
+	}
+
+}
@@ -1,8 +1,10 @@
 package com.redis.spring.batch.step;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import org.springframework.batch.core.ItemReadListener;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.observability.BatchMetrics;
@@ -17,10 +19,10 @@ import org.springframework.util.Assert;
 
 import com.redis.spring.batch.item.PollableItemReader;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
-import io.micrometer.core.instrument.Timer.Sample;
 
 /**
  * Fault-tolerant implementation of the ChunkProvider interface, that allows for
@@ -34,9 +36,16 @@ public class FlushingChunkProvider<I> extends SimpleChunkProvider<I> {
 
 	private final RepeatOperations repeatOperations;
 
-	private long flushInterval = DEFAULT_FLUSH_INTERVAL.toMillis();
-	private long idleTimeout = DEFAULT_IDLE_TIMEOUT.toMillis();
-	private long lastActivity = 0;
+	private long flushInterval = nanos(DEFAULT_FLUSH_INTERVAL);
+	private long idleTimeout = nanos(DEFAULT_IDLE_TIMEOUT);
+	private boolean active;
+	private long lastActivity;
+	private int chunkSize;
+	private MeterRegistry meterRegistry = Metrics.globalRegistry;
+	private AdaptiveFlushPolicy flushPolicy;
+
+	// Timers are resolved once per step execution rather than for each chunk
+	private volatile StepTimers stepTimers;
 
 	public FlushingChunkProvider(ItemReader<? extends I> itemReader, RepeatOperations repeatOperations) {
 		super(itemReader, repeatOperations);
@@ -45,63 +54,166 @@ public class FlushingChunkProvider<I> extends SimpleChunkProvider<I> {
 	}
 
 	public void setFlushInterval(Duration interval) {
-		this.flushInterval = interval.toMillis();
+		this.flushInterval = nanos(interval);
 	}
 
 	public void setIdleTimeout(Duration idleTimeout) {
-		this.idleTimeout = idleTimeout.toMillis();
+		this.idleTimeout = nanos(idleTimeout);
+	}
+
+	private static long nanos(Duration duration) {
+		try {
+			return duration.toNanos();
+		} catch (ArithmeticException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * 
+	 * @param chunkSize number of items in a complete chunk, so that items can be
+	 *                  polled in bulk up to that number. If not set items are
+	 *                  polled one at a time until the completion policy ends the
+	 *                  chunk.
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * 
+	 * @param policy policy adapting the flush interval and chunk size to the
+	 *               load, in which case the flush interval is ignored and the
+	 *               chunk size bounds the adaptive chunk size
+	 */
+	public void setFlushPolicy(AdaptiveFlushPolicy policy) {
+		this.flushPolicy = policy;
+	}
+
+	/**
+	 * 
+	 * @param registry registry of the {@code chunk.read} timer, which records the
+	 *                 duration of each chunk read and replaces the per-item
+	 *                 {@code item.read} timer of Spring Batch. Defaults to the
+	 *                 global registry.
+	 */
+	public void setMeterRegistry(MeterRegistry registry) {
+		this.meterRegistry = registry;
+	}
+
+	private Timer timer(StepExecution stepExecution, boolean failed) {
+		StepTimers timers = stepTimers;
+		if (timers == null || timers.stepExecution != stepExecution) {
+			// Chunk threads racing here resolve the same registered meters
+			timers = new StepTimers(meterRegistry, stepExecution);
+			stepTimers = timers;
+		}
+		return failed ? timers.failure : timers.success;
 	}
 
-	private void stopFlushTimer(Timer.Sample sample, StepExecution stepExecution, String status) {
-		sample.stop(BatchMetrics.createTimer(Metrics.globalRegistry, "item.read", "Item reading duration",
-				Tag.of("job.name", stepExecution.getJobExecution().getJobInstance().getJobName()),
-				Tag.of("step.name", stepExecution.getStepName()), Tag.of("status", status)));
+	/**
+	 * Chunk read timers of a step execution, published as a whole so that chunk
+	 * threads never see timers of different executions.
+	 */
+	private static class StepTimers {
+
+		private final StepExecution stepExecution;
+		private final Timer success;
+		private final Timer failure;
+
+		public StepTimers(MeterRegistry registry, StepExecution stepExecution) {
+			Tag jobName = Tag.of("job.name", stepExecution.getJobExecution().getJobInstance().getJobName());
+			Tag stepName = Tag.of("step.name", stepExecution.getStepName());
+			this.stepExecution = stepExecution;
+			this.success = BatchMetrics.createTimer(registry, "chunk.read", "Chunk reading duration", jobName,
+					stepName, Tag.of("status", BatchMetrics.STATUS_SUCCESS));
+			this.failure = BatchMetrics.createTimer(registry, "chunk.read", "Chunk reading duration", jobName,
+					stepName, Tag.of("status", BatchMetrics.STATUS_FAILURE));
+		}
+
 	}
 
+	/**
+	 * Polls items until the chunk is complete or the flush interval has elapsed.
+	 * Time is read from the monotonic clock once per poll and the chunk read
+	 * duration is recorded once per chunk.
+	 */
 	@Override
 	public Chunk<I> provide(StepContribution contribution) {
-		long start = System.currentTimeMillis();
-		if (lastActivity == 0) {
+		long start = System.nanoTime();
+		long deadline = start + flushInterval();
+		int targetSize = targetChunkSize();
+		if (!active) {
 			lastActivity = start;
+			active = true;
 		}
+		// Local to this call as chunks can be provided concurrently
+		boolean[] chunkFailed = { false };
 		final Chunk<I> inputs = new Chunk<>();
 		repeatOperations.iterate(context -> {
-			long pollingTimeout = flushInterval - millisSince(start);
+			long pollingTimeout = deadline - System.nanoTime();
 			if (pollingTimeout < 0) {
 				return RepeatStatus.FINISHED;
 			}
-			Sample sample = Timer.start(Metrics.globalRegistry);
-			I item;
+			List<I> items;
 			try {
-				item = read(contribution, inputs, pollingTimeout);
+				items = read(contribution, inputs, maxItems(inputs, targetSize), pollingTimeout);
 			} catch (SkipOverflowException e) {
 				// read() tells us about an excess of skips by throwing an exception
-				stopFlushTimer(sample, contribution.getStepExecution(), BatchMetrics.STATUS_FAILURE);
+				chunkFailed[0] = true;
 				return RepeatStatus.FINISHED;
 			}
-			if (item == null) {
-				if (millisSince(lastActivity) > idleTimeout) {
+			if (items.isEmpty()) {
+				if (System.nanoTime() - lastActivity > idleTimeout) {
 					inputs.setEnd();
 				}
 				return RepeatStatus.CONTINUABLE;
 			}
-			stopFlushTimer(sample, contribution.getStepExecution(), BatchMetrics.STATUS_SUCCESS);
-			inputs.add(item);
-			contribution.incrementReadCount();
-			lastActivity = System.currentTimeMillis();
+			for (I item : items) {
+				inputs.add(item);
+				contribution.incrementReadCount();
+			}
+			lastActivity = System.nanoTime();
+			if (targetSize > 0 && inputs.size() >= targetSize) {
+				return RepeatStatus.FINISHED;
+			}
 			return RepeatStatus.CONTINUABLE;
 		});
+		long duration = System.nanoTime() - start;
+		if (chunkFailed[0] || !inputs.isEmpty()) {
+			timer(contribution.getStepExecution(), chunkFailed[0]).record(duration, TimeUnit.NANOSECONDS);
+		}
+		if (flushPolicy != null) {
+			flushPolicy.chunkRead(inputs.size(), duration);
+		}
 		return inputs;
 	}
 
-	private long millisSince(long start) {
-		return System.currentTimeMillis() - start;
+	private long flushInterval() {
+		return flushPolicy == null ? flushInterval : flushPolicy.getFlushInterval();
+	}
+
+	private int targetChunkSize() {
+		if (flushPolicy == null) {
+			return chunkSize;
+		}
+		int size = flushPolicy.getChunkSize();
+		return chunkSize > 0 ? Math.min(chunkSize, size) : size;
+	}
+
+	private int maxItems(Chunk<I> inputs, int targetSize) {
+		return Math.max(1, targetSize - inputs.size());
 	}
 
-	protected I read(StepContribution contribution, Chunk<I> chunk, long timeout) throws InterruptedException {
+	/**
+	 * 
+	 * @param timeout how long to wait for the first item, in nanoseconds
+	 */
+	protected List<I> read(StepContribution contribution, Chunk<I> chunk, int maxItems, long timeout)
+			throws InterruptedException {
 		while (true) {
 			try {
-				return doRead(timeout);
+				return doRead(maxItems, timeout);
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
 				throw e;
@@ -109,20 +221,25 @@ public class FlushingChunkProvider<I> extends SimpleChunkProvider<I> {
 		}
 	}
 
+	/**
+	 * Polls up to the given number of items. Read listeners are notified once
+	 * before the poll and once for each item read.
+	 */
 	@SuppressWarnings("unchecked")
-	protected final I doRead(long timeout) throws InterruptedException {
+	protected final List<I> doRead(int maxItems, long timeout) throws InterruptedException {
+		ItemReadListener<? super I> listener = getListener();
 		try {
-			getListener().beforeRead();
-			I item = ((PollableItemReader<I>) itemReader).poll(timeout, TimeUnit.MILLISECONDS);
-			if (item != null) {
-				getListener().afterRead(item);
+			listener.beforeRead();
+			List<I> items = ((PollableItemReader<I>) itemReader).poll(maxItems, timeout, TimeUnit.NANOSECONDS);
+			for (I item : items) {
+				listener.afterRead(item);
 			}
-			return item;
+			return items;
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw e;
 		} catch (Exception e) {
-			getListener().onReadError(e);
+			listener.onReadError(e);
 			throw e;
 		}
 	}
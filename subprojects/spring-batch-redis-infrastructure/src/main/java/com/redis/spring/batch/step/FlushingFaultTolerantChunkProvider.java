@@ -1,5 +1,7 @@
 package com.redis.spring.batch.step;
 
+import java.util.List;
+
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.core.step.item.SkipOverflowException;
@@ -63,10 +65,11 @@ public class FlushingFaultTolerantChunkProvider<I> extends FlushingChunkProvider
     }
 
     @Override
-    protected I read(StepContribution contribution, Chunk<I> chunk, long timeout) throws InterruptedException {
+    protected List<I> read(StepContribution contribution, Chunk<I> chunk, int maxItems, long timeout)
+            throws InterruptedException {
         while (true) {
             try {
-                return doRead(timeout);
+                return doRead(maxItems, timeout);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 throw e;
@@ -26,6 +26,7 @@ public class FlushingFaultTolerantStepBuilder<I, O> extends FaultTolerantStepBui
 
 	private Duration flushInterval = FlushingChunkProvider.DEFAULT_FLUSH_INTERVAL;
 	private Duration idleTimeout = FlushingChunkProvider.DEFAULT_IDLE_TIMEOUT;
+	private AdaptiveFlushPolicy flushPolicy;
 
 	public FlushingFaultTolerantStepBuilder(StepBuilderHelper<?> parent) {
 		super(parent);
@@ -39,6 +40,7 @@ public class FlushingFaultTolerantStepBuilder<I, O> extends FaultTolerantStepBui
 		super(parent);
 		this.flushInterval = parent.getFlushInterval();
 		this.idleTimeout = parent.getIdleTimeout();
+		this.flushPolicy = parent.getFlushPolicy();
 	}
 
 	@Override
@@ -53,6 +55,8 @@ public class FlushingFaultTolerantStepBuilder<I, O> extends FaultTolerantStepBui
 		chunkProvider.setRollbackClassifier(getRollbackClassifier());
 		chunkProvider.setFlushInterval(flushInterval);
 		chunkProvider.setIdleTimeout(idleTimeout);
+		chunkProvider.setFlushPolicy(flushPolicy);
+		chunkProvider.setChunkSize(getChunkSize());
 		ArrayList<StepListener> listeners = new ArrayList<>(getItemListeners());
 		listeners.addAll(getSkipListeners());
 		chunkProvider.setListeners(listeners);
@@ -74,6 +78,21 @@ public class FlushingFaultTolerantStepBuilder<I, O> extends FaultTolerantStepBui
 		return this;
 	}
 
+	/**
+	 * 
+	 * @param policy adapts the flush interval and chunk size to the load. The
+	 *               chunk size of the step bounds the adaptive chunk size. The
+	 *               policy is registered as a write listener to measure write
+	 *               latency.
+	 */
+	public FlushingFaultTolerantStepBuilder<I, O> flushPolicy(AdaptiveFlushPolicy policy) {
+		this.flushPolicy = policy;
+		if (policy != null) {
+			listener((ItemWriteListener<? super O>) policy);
+		}
+		return this;
+	}
+
 	public FlushingFaultTolerantStepBuilder<I, O> idleTimeout(Duration timeout) {
 		this.idleTimeout = timeout;
 		return this;
@@ -25,6 +25,7 @@ public class FlushingStepBuilder<I, O> extends SimpleStepBuilder<I, O> {
 
 	private Duration flushInterval = FlushingChunkProvider.DEFAULT_FLUSH_INTERVAL;
 	private Duration idleTimeout = FlushingChunkProvider.DEFAULT_IDLE_TIMEOUT;
+	private AdaptiveFlushPolicy flushPolicy;
 
 	public FlushingStepBuilder(StepBuilderHelper<?> parent) {
 		super(parent);
@@ -62,6 +63,8 @@ public class FlushingStepBuilder<I, O> extends SimpleStepBuilder<I, O> {
 		FlushingChunkProvider<I> chunkProvider = new FlushingChunkProvider<>(getReader(), createChunkOperations());
 		chunkProvider.setFlushInterval(flushInterval);
 		chunkProvider.setIdleTimeout(idleTimeout);
+		chunkProvider.setFlushPolicy(flushPolicy);
+		chunkProvider.setChunkSize(getChunkSize());
 		ArrayList<StepListener> listeners = new ArrayList<>(getItemListeners());
 		chunkProvider.setListeners(listeners);
 		return chunkProvider;
@@ -82,6 +85,33 @@ public class FlushingStepBuilder<I, O> extends SimpleStepBuilder<I, O> {
 		return this;
 	}
 
+	/**
+	 * 
+	 * @param policy adapts the flush interval and chunk size to the load. The
+	 *               chunk size of the step bounds the adaptive chunk size. The
+	 *               policy is registered as a write listener to measure write
+	 *               latency.
+	 */
+	public FlushingStepBuilder<I, O> flushPolicy(AdaptiveFlushPolicy policy) {
+		return flushPolicy(policy, true);
+	}
+
+	/**
+	 * 
+	 * @param policy        adapts the flush interval and chunk size to the load
+	 * @param measureWrites true to register the policy as a write listener of
+	 *                      this step. False when the writer of this step only
+	 *                      hands items off, e.g. to a queue, and the policy is
+	 *                      registered with the step writing them downstream.
+	 */
+	public FlushingStepBuilder<I, O> flushPolicy(AdaptiveFlushPolicy policy, boolean measureWrites) {
+		this.flushPolicy = policy;
+		if (policy != null && measureWrites) {
+			listener((ItemWriteListener<? super O>) policy);
+		}
+		return this;
+	}
+
 	public FlushingStepBuilder<I, O> idleTimeout(Duration timeout) {
 		this.idleTimeout = timeout;
 		return this;
@@ -141,4 +171,8 @@ public class FlushingStepBuilder<I, O> extends SimpleStepBuilder<I, O> {
 		return idleTimeout;
 	}
 
+	public AdaptiveFlushPolicy getFlushPolicy() {
+		return flushPolicy;
+	}
+
 }
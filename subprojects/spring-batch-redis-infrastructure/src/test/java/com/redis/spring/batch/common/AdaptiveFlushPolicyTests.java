@@ -0,0 +1,55 @@
+package com.redis.spring.batch.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.spring.batch.step.AdaptiveFlushPolicy;
+
+class AdaptiveFlushPolicyTests {
+
+	@Test
+	void flushInterval() {
+		AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy();
+		policy.setSmoothing(1);
+		assertEquals(Duration.ofMillis(100).toNanos(), policy.getFlushInterval());
+		policy.chunkWritten(Duration.ofMillis(20).toNanos());
+		assertEquals(Duration.ofMillis(80).toNanos(), policy.getFlushInterval());
+		policy.chunkWritten(Duration.ofMillis(200).toNanos());
+		assertEquals(AdaptiveFlushPolicy.DEFAULT_MIN_FLUSH_INTERVAL.toNanos(), policy.getFlushInterval());
+		// 1000 items per second arrive during each 200ms write, not the 1ms interval
+		policy.chunkRead(10, Duration.ofMillis(10).toNanos());
+		assertEquals(200, policy.getChunkSize());
+		policy.setMaxChunkSize(150);
+		assertEquals(150, policy.getChunkSize());
+	}
+
+	@Test
+	void chunkSize() {
+		AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy();
+		policy.setSmoothing(1);
+		policy.setMaxChunkSize(500);
+		assertEquals(500, policy.getChunkSize());
+		// 1 item per second: flush each item as soon as it is read
+		policy.chunkRead(1, Duration.ofSeconds(1).toNanos());
+		assertEquals(1, policy.getChunkSize());
+		// 1000 items per second over a 100ms interval
+		policy.chunkRead(10, Duration.ofMillis(10).toNanos());
+		assertEquals(100, policy.getChunkSize());
+		// Firehose
+		policy.chunkRead(1000, Duration.ofMillis(1).toNanos());
+		assertEquals(500, policy.getChunkSize());
+	}
+
+	@Test
+	void smoothing() {
+		AdaptiveFlushPolicy policy = new AdaptiveFlushPolicy();
+		policy.setSmoothing(0.5);
+		policy.chunkWritten(Duration.ofMillis(20).toNanos());
+		policy.chunkWritten(Duration.ofMillis(40).toNanos());
+		assertEquals(Duration.ofMillis(30), policy.getWriteLatency());
+	}
+
+}
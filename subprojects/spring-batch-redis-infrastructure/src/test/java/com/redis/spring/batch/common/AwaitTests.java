@@ -0,0 +1,28 @@
+package com.redis.spring.batch.common;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.redis.spring.batch.Await;
+
+class AwaitTests {
+
+	@Test
+	void until() throws TimeoutException, InterruptedException {
+		AtomicInteger count = new AtomicInteger();
+		Thread caller = Thread.currentThread();
+		Await.await().until(() -> Thread.currentThread() == caller && count.incrementAndGet() == 3);
+		Assertions.assertEquals(3, count.get());
+	}
+
+	@Test
+	void timeout() {
+		Assertions.assertThrows(TimeoutException.class,
+				() -> Await.await().timeout(Duration.ofMillis(10)).until(() -> false));
+	}
+
+}
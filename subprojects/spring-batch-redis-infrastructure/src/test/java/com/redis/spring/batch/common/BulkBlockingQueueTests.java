@@ -0,0 +1,72 @@
+package com.redis.spring.batch.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.spring.batch.item.BulkBlockingQueue;
+
+class BulkBlockingQueueTests {
+
+	@Test
+	void pollBulk() throws InterruptedException {
+		BulkBlockingQueue<Integer> queue = new BulkBlockingQueue<>(10);
+		queue.putAll(IntStream.range(0, 7).boxed().collect(Collectors.toList()));
+		List<Integer> items = new ArrayList<>();
+		assertEquals(5, queue.poll(items, 5, 0, TimeUnit.MILLISECONDS));
+		assertEquals(2, queue.poll(items, 5, 0, TimeUnit.MILLISECONDS));
+		assertEquals(0, queue.poll(items, 5, 10, TimeUnit.MILLISECONDS));
+		assertEquals(IntStream.range(0, 7).boxed().collect(Collectors.toList()), items);
+		assertEquals(10, queue.remainingCapacity());
+	}
+
+	@Test
+	void putAllBeyondCapacity() throws Exception {
+		int count = 1000;
+		BulkBlockingQueue<Integer> queue = new BulkBlockingQueue<>(10);
+		List<Integer> expected = IntStream.range(0, count).boxed().collect(Collectors.toList());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> future = executor.submit(() -> {
+				queue.putAll(expected);
+				return null;
+			});
+			List<Integer> items = new ArrayList<>();
+			while (items.size() < count) {
+				assertTrue(queue.poll(items, 7, 1, TimeUnit.SECONDS) > 0);
+			}
+			future.get(1, TimeUnit.SECONDS);
+			assertEquals(expected, items);
+			assertTrue(queue.isEmpty());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void wrapAround() throws InterruptedException {
+		BulkBlockingQueue<String> queue = new BulkBlockingQueue<>(3);
+		for (int index = 0; index < 10; index++) {
+			queue.put("item" + index);
+			assertEquals("item" + index, queue.poll(0, TimeUnit.MILLISECONDS));
+		}
+		assertTrue(queue.offer("a"));
+		assertTrue(queue.offer("b"));
+		assertTrue(queue.offer("c"));
+		assertTrue(!queue.offer("d"));
+		List<String> items = new ArrayList<>();
+		assertEquals(3, queue.drainTo(items));
+		assertEquals(List.of("a", "b", "c"), items);
+	}
+
+}
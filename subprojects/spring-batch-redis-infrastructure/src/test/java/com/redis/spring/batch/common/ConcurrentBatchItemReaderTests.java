@@ -0,0 +1,61 @@
+package com.redis.spring.batch.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.support.IteratorItemReader;
+
+import com.redis.spring.batch.item.ConcurrentBatchItemReader;
+
+class ConcurrentBatchItemReaderTests {
+
+	@Test
+	void concurrentReads() throws Exception {
+		int threads = 4;
+		int count = 10000;
+		List<Integer> expected = IntStream.range(0, count).boxed().collect(Collectors.toList());
+		ConcurrentBatchItemReader<Integer> reader = new ConcurrentBatchItemReader<>(
+				new IteratorItemReader<>(expected), 7);
+		reader.open(new ExecutionContext());
+		Set<Integer> items = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				futures.add(executor.submit(() -> {
+					int read = 0;
+					Integer item;
+					while ((item = reader.read()) != null) {
+						items.add(item);
+						read++;
+					}
+					return read;
+				}));
+			}
+			int total = 0;
+			for (Future<Integer> future : futures) {
+				total += future.get(10, TimeUnit.SECONDS);
+			}
+			assertEquals(count, total);
+			assertEquals(count, items.size());
+			assertNull(reader.read());
+		} finally {
+			executor.shutdownNow();
+			reader.close();
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.redis.spring.batch.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.spring.batch.item.BulkBlockingQueue;
+import com.redis.spring.batch.item.MemoryBoundedQueue;
+
+class MemoryBoundedQueueTests {
+
+	@Test
+	void limit() throws InterruptedException {
+		MemoryBoundedQueue<String> queue = new MemoryBoundedQueue<>(new BulkBlockingQueue<>(100), 10, String::length);
+		assertTrue(queue.offer("12345"));
+		assertTrue(queue.offer("1234"));
+		assertFalse(queue.offer("12"));
+		assertTrue(queue.offer("1"));
+		assertEquals(10, queue.getUsage());
+		assertEquals(0, queue.remainingCapacity());
+		assertEquals("12345", queue.poll());
+		assertTrue(queue.offer("12"));
+		List<String> items = new ArrayList<>();
+		assertEquals(3, queue.poll(items, 10, 0, TimeUnit.MILLISECONDS));
+		assertEquals(0, queue.getUsage());
+		// Oversized items are accepted one at a time
+		assertTrue(queue.offer("123456789012"));
+		assertFalse(queue.offer("1"));
+	}
+
+	@Test
+	void putAllBeyondLimit() throws Exception {
+		int count = 1000;
+		MemoryBoundedQueue<String> queue = new MemoryBoundedQueue<>(new BulkBlockingQueue<>(count), 100,
+				String::length);
+		List<String> expected = IntStream.range(0, count).mapToObj(i -> "item" + i).collect(Collectors.toList());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> future = executor.submit(() -> {
+				queue.putAll(expected);
+				return null;
+			});
+			List<String> items = new ArrayList<>();
+			while (items.size() < count) {
+				assertTrue(queue.getUsage() <= 100);
+				assertTrue(queue.poll(items, 10, 1, TimeUnit.SECONDS) > 0);
+			}
+			future.get(1, TimeUnit.SECONDS);
+			assertEquals(expected, items);
+			assertEquals(0, queue.getUsage());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void putAllInterrupted() throws Exception {
+		assertInterruptedPutAllReleases(new BulkBlockingQueue<>(2));
+		assertInterruptedPutAllReleases(new ArrayBlockingQueue<>(2));
+	}
+
+	private void assertInterruptedPutAllReleases(BlockingQueue<String> delegate) throws Exception {
+		MemoryBoundedQueue<String> queue = new MemoryBoundedQueue<>(delegate, 100, String::length);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> future = executor.submit(() -> {
+			queue.putAll(Arrays.asList("1", "22", "333", "4444"));
+			return null;
+		});
+		while (queue.size() < 2) {
+			Thread.sleep(1);
+		}
+		future.cancel(true);
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+		// Memory of the items left out is released
+		assertEquals(3, queue.getUsage());
+		assertEquals(Arrays.asList("1", "22"), new ArrayList<>(queue));
+		queue.clear();
+		assertEquals(0, queue.getUsage());
+	}
+
+}
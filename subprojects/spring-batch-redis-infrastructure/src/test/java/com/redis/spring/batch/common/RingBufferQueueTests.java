@@ -0,0 +1,78 @@
+package com.redis.spring.batch.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import com.redis.spring.batch.item.RingBufferQueue;
+import com.redis.spring.batch.item.WaitStrategy;
+
+class RingBufferQueueTests {
+
+	@Test
+	void capacity() throws InterruptedException {
+		RingBufferQueue<Integer> queue = new RingBufferQueue<>(3);
+		assertEquals(4, queue.remainingCapacity());
+		for (int index = 0; index < 4; index++) {
+			assertTrue(queue.offer(index));
+		}
+		assertFalse(queue.offer(4));
+		assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+		assertEquals(0, queue.peek());
+		assertEquals(List.of(0, 1, 2, 3), new ArrayList<>(queue));
+		List<Integer> items = new ArrayList<>();
+		assertEquals(4, queue.poll(items, 10, 0, TimeUnit.MILLISECONDS));
+		assertEquals(List.of(0, 1, 2, 3), items);
+		assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void multipleProducers() throws Exception {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			int producers = 2;
+			int count = 5000;
+			RingBufferQueue<Integer> queue = new RingBufferQueue<>(64, waitStrategy);
+			ExecutorService executor = Executors.newFixedThreadPool(producers);
+			try {
+				List<Future<?>> futures = new ArrayList<>();
+				for (int producer = 0; producer < producers; producer++) {
+					int start = producer * count;
+					futures.add(executor.submit(() -> {
+						queue.putAll(IntStream.range(start, start + count).boxed().collect(Collectors.toList()));
+						return null;
+					}));
+				}
+				Set<Integer> items = new HashSet<>();
+				List<Integer> chunk = new ArrayList<>();
+				while (items.size() < producers * count) {
+					chunk.clear();
+					assertTrue(queue.poll(chunk, 50, 1, TimeUnit.SECONDS) > 0);
+					items.addAll(chunk);
+				}
+				for (Future<?> future : futures) {
+					future.get(1, TimeUnit.SECONDS);
+				}
+				assertEquals(producers * count, items.size());
+				assertTrue(queue.isEmpty());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.redis.spring.batch.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.redis.spring.batch.item.SpillCodec;
+import com.redis.spring.batch.item.SpillQueue;
+
+class SpillQueueTests {
+
+	private static final SpillCodec<String> CODEC = new SpillCodec<String>() {
+
+		@Override
+		public byte[] encode(String item) {
+			return item.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public String decode(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	};
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void spill() throws Exception {
+		int count = 1000;
+		List<String> expected = IntStream.range(0, count).mapToObj(i -> "item" + i).collect(Collectors.toList());
+		try (SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 10, 0, null, 100,
+				SpillQueue.NO_SPILL_LIMIT)) {
+			queue.putAll(expected.subList(0, 500));
+			assertEquals(490, queue.getSpilledCount());
+			List<String> items = new ArrayList<>();
+			assertEquals(20, queue.poll(items, 20, 0, TimeUnit.MILLISECONDS));
+			// Spilled items are read back before newer items go to memory
+			queue.putAll(expected.subList(500, count));
+			assertEquals(count - 20, queue.size());
+			assertEquals("item20", queue.peek());
+			while (items.size() < count) {
+				assertTrue(queue.poll(items, 50, 0, TimeUnit.MILLISECONDS) > 0);
+			}
+			assertEquals(expected, items);
+			assertEquals(0, queue.getSpilledCount());
+			queue.offer("next");
+			assertEquals(0, queue.getSpilledCount());
+			assertEquals("next", queue.poll());
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	void memoryLimit() throws Exception {
+		try (SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 100, 10, String::length,
+				SpillQueue.DEFAULT_SEGMENT_SIZE, SpillQueue.NO_SPILL_LIMIT)) {
+			queue.put("12345");
+			queue.put("1234");
+			queue.put("12");
+			assertEquals(1, queue.getSpilledCount());
+			assertEquals(List.of("12345", "1234", "12"), new ArrayList<>(queue));
+			assertEquals("12345", queue.poll());
+			assertEquals("1234", queue.poll());
+			assertEquals("12", queue.poll(1, TimeUnit.SECONDS));
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	@Test
+	void spillLimit() throws Exception {
+		// Each spilled item takes 4 bytes of header and 5 bytes of data
+		try (SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 1, 0, null, 100, 18)) {
+			assertTrue(queue.offer("item0"));
+			assertTrue(queue.offer("item1"));
+			assertTrue(queue.offer("item2"));
+			assertEquals(18, queue.getSpilledBytes());
+			assertFalse(queue.offer("item3"));
+			assertFalse(queue.offer("item3", 10, TimeUnit.MILLISECONDS));
+			CompletableFuture<Void> put = CompletableFuture.runAsync(() -> {
+				try {
+					queue.put("item3");
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			// In-memory item does not make room for spilled ones
+			assertEquals("item0", queue.poll());
+			assertFalse(put.isDone());
+			assertEquals("item1", queue.poll());
+			put.get(1, TimeUnit.SECONDS);
+			assertEquals(List.of("item2", "item3"), new ArrayList<>(queue));
+		}
+	}
+
+}
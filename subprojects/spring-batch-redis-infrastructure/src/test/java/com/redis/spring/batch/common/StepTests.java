@@ -3,10 +3,15 @@ package com.redis.spring.batch.common;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -15,6 +20,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.ItemReadListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobParameters;
@@ -24,12 +30,16 @@ import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.core.step.skip.AlwaysSkipItemSkipPolicy;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.support.ListItemReader;
 import org.springframework.batch.item.support.ListItemWriter;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
 import com.redis.spring.batch.JobUtils;
+import com.redis.spring.batch.item.PartitionedItemReader;
 import com.redis.spring.batch.step.FlushingFaultTolerantStepBuilder;
 import com.redis.spring.batch.step.FlushingStepBuilder;
 
@@ -129,4 +139,51 @@ class StepTests {
 		assertEquals(count, writer.getWrittenItems().size());
 	}
 
+	@Test
+	void partitionedStep() throws Exception {
+		String name = "partitionedStep";
+		int keys = 10;
+		int count = 100;
+		BlockingQueue<String> queue = new LinkedBlockingDeque<>();
+		for (int index = 0; index < count; index++) {
+			for (int key = 0; key < keys; key++) {
+				queue.add(key + ":" + index);
+			}
+		}
+		int threads = 4;
+		PartitionedItemReader<String> reader = new PartitionedItemReader<>(new QueueItemReader<>(queue),
+				item -> item.substring(0, item.indexOf(':')).hashCode(), threads, 100);
+		Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+		ItemWriter<String> writer = chunk -> {
+			for (String item : chunk) {
+				String[] parts = item.split(":");
+				written.computeIfAbsent(parts[0], k -> Collections.synchronizedList(new ArrayList<>()))
+						.add(Integer.parseInt(parts[1]));
+			}
+		};
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setMaxPoolSize(threads);
+		taskExecutor.setCorePoolSize(threads);
+		taskExecutor.afterPropertiesSet();
+		// Random processing times reorder chunks across threads
+		ItemProcessor<String, String> processor = item -> {
+			Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+			return item;
+		};
+		FlushingStepBuilder<String, String> step = new FlushingStepBuilder<>(step(name, 5));
+		step.reader(reader);
+		step.processor(processor);
+		step.writer(writer);
+		step.idleTimeout(Duration.ofMillis(500));
+		step.listener((ChunkListener) reader);
+		step.taskExecutor(taskExecutor);
+		Job job = job(name).start(step.build()).build();
+		jobLauncher.run(job, new JobParameters());
+		List<Integer> expected = IntStream.range(0, count).boxed().collect(Collectors.toList());
+		assertEquals(keys, written.size());
+		for (List<Integer> sequence : written.values()) {
+			assertEquals(expected, sequence);
+		}
+	}
+
 }
@@ -224,7 +224,7 @@ public abstract class AbstractTestBase {
 
 	protected void awaitUntilSubscribers() {
 		try {
-			awaitUntil(() -> redisCommands.pubsubNumpat() > 0);
+			awaitUntil(this::hasSubscribers);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw new ItemStreamException("Interrupted", e);
@@ -234,7 +234,11 @@ public abstract class AbstractTestBase {
 	}
 
 	protected void awaitUntilNoSubscribers() throws TimeoutException, InterruptedException {
-		awaitUntil(() -> redisCommands.pubsubNumpat() == 0);
+		awaitUntil(() -> !hasSubscribers());
+	}
+
+	private boolean hasSubscribers() {
+		return redisCommands.pubsubNumpat() > 0 || !redisCommands.pubsubChannels().isEmpty();
 	}
 
 	public int getChunkSize() {
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -17,21 +19,30 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.runner.RunWith;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.job.builder.FlowBuilder;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
 import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.support.IteratorItemReader;
 import org.springframework.batch.item.support.ListItemReader;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -65,15 +76,19 @@ import com.redis.spring.batch.item.redis.reader.Evalsha;
 import com.redis.spring.batch.item.redis.reader.KeyComparison;
 import com.redis.spring.batch.item.redis.reader.KeyComparison.Status;
 import com.redis.spring.batch.item.redis.reader.KeyComparisonItemReader;
+import com.redis.spring.batch.item.redis.reader.KeyEvent;
+import com.redis.spring.batch.item.redis.reader.KeyJournal;
 import com.redis.spring.batch.item.redis.reader.KeyNotificationItemReader;
 import com.redis.spring.batch.item.redis.reader.MemKeyValue;
 import com.redis.spring.batch.item.redis.reader.MemKeyValueRead.ValueType;
 import com.redis.spring.batch.item.redis.reader.StreamItemReader;
 import com.redis.spring.batch.item.redis.reader.StreamItemReader.AckPolicy;
+import com.redis.spring.batch.item.redis.writer.KeyValueWrite;
 import com.redis.spring.batch.item.redis.writer.operation.Geoadd;
 import com.redis.spring.batch.item.redis.writer.operation.Hset;
 import com.redis.spring.batch.item.redis.writer.operation.JsonDel;
 import com.redis.spring.batch.item.redis.writer.operation.JsonSet;
+import com.redis.spring.batch.item.redis.writer.operation.Rpush;
 import com.redis.spring.batch.item.redis.writer.operation.Sugadd;
 import com.redis.spring.batch.item.redis.writer.operation.TsAdd;
 import com.redis.spring.batch.step.FlushingStepBuilder;
@@ -82,11 +97,16 @@ import io.lettuce.core.Consumer;
 import io.lettuce.core.GeoArgs;
 import io.lettuce.core.GeoValue;
 import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisFuture;
 import io.lettuce.core.RestoreArgs;
 import io.lettuce.core.ScanIterator;
 import io.lettuce.core.ScoredValue;
 import io.lettuce.core.StreamMessage;
 import io.lettuce.core.XAddArgs;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode.NodeFlag;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.codec.StringCodec;
 import io.lettuce.core.models.stream.PendingMessages;
@@ -293,6 +313,19 @@ abstract class BatchTests extends AbstractTargetTestBase {
 		assertEquals(redisCommands.dbsize(), list.size());
 	}
 
+	@Test
+	void readStructKeyProcessor(TestInfo info) throws Exception {
+		redisCommands.set("key:1", "value1");
+		redisCommands.set("key:2", "value2");
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		reader.setKeyProcessor(key -> key.equals("key:1") ? null : key);
+		reader.open(new ExecutionContext());
+		List<MemKeyValue<String, Object>> list = readAll(reader);
+		reader.close();
+		assertEquals(1, list.size());
+		assertEquals("key:2", list.get(0).getKey());
+	}
+
 	@Test
 	void readStreamAutoAck(TestInfo info) throws Exception {
 		String stream = "stream1";
@@ -689,6 +722,15 @@ abstract class BatchTests extends AbstractTargetTestBase {
 		replicate(info, dumpReader(info), writer);
 	}
 
+	@Test
+	void replicateDumpScript(TestInfo info) throws Exception {
+		GeneratorItemReader gen = generator(100);
+		generate(info, gen);
+		RedisItemWriter<byte[], byte[], KeyValue<byte[], byte[]>> writer = RedisItemWriter.dumpScript();
+		writer.setClient(targetRedisClient);
+		replicate(info, dumpReader(info), writer);
+	}
+
 	protected <K, V, T> void replicate(TestInfo info, RedisItemReader<K, V, MemKeyValue<K, T>> reader,
 			RedisItemWriter<K, V, KeyValue<K, T>> writer) throws Exception {
 		run(testInfo(info, "replicate"), reader, writer);
@@ -824,6 +866,92 @@ abstract class BatchTests extends AbstractTargetTestBase {
 		}
 	}
 
+	@Test
+	void readKeyNotificationsCoalesce() throws Exception {
+		enableKeyspaceNotifications();
+		KeyNotificationItemReader<String, String> keyReader = new KeyNotificationItemReader<>(redisClient,
+				StringCodec.UTF8);
+		keyReader.setCoalescingWindow(Duration.ofMillis(500));
+		keyReader.open(new ExecutionContext());
+		try {
+			String key = "key1";
+			redisCommands.set(key, "0");
+			awaitUntil(() -> keyReader.getQueue().size() == 1);
+			Assertions.assertNull(keyReader.poll(10, TimeUnit.MILLISECONDS));
+			for (int index = 1; index <= 100; index++) {
+				redisCommands.set(key, String.valueOf(index));
+			}
+			redisCommands.del(key);
+			KeyEvent<String> keyEvent = keyReader.poll(1, TimeUnit.SECONDS);
+			Assertions.assertEquals(key, keyEvent.getKey());
+			Assertions.assertEquals("del", keyEvent.getEvent());
+			Assertions.assertNull(keyReader.poll(10, TimeUnit.MILLISECONDS));
+		} finally {
+			keyReader.close();
+		}
+	}
+
+	@Test
+	void readKeyNotificationsOverflow() throws Exception {
+		enableKeyspaceNotifications();
+		KeyNotificationItemReader<String, String> keyReader = new KeyNotificationItemReader<>(redisClient,
+				StringCodec.UTF8);
+		keyReader.setQueueCapacity(10);
+		keyReader.open(new ExecutionContext());
+		try {
+			int count = 100;
+			for (int index = 0; index < count; index++) {
+				redisCommands.set("key:" + index, "value");
+			}
+			awaitUntil(() -> keyReader.getQueue().remainingCapacity() == 0);
+			Set<String> keys = new HashSet<>();
+			KeyEvent<String> keyEvent;
+			while ((keyEvent = keyReader.poll(100, TimeUnit.MILLISECONDS)) != null) {
+				keys.add(keyEvent.getKey());
+			}
+			Assertions.assertEquals(count, keys.size());
+		} finally {
+			keyReader.close();
+		}
+	}
+
+	@Test
+	void readKeyNotificationsCluster() throws Exception {
+		Assumptions.assumeTrue(redisClient instanceof RedisClusterClient);
+		enableKeyspaceNotifications();
+		RedisClusterClient clusterClient = (RedisClusterClient) redisClient;
+		KeyNotificationItemReader<String, String> keyReader = new KeyNotificationItemReader<>(redisClient,
+				StringCodec.UTF8);
+		keyReader.open(new ExecutionContext());
+		try {
+			long upstreams = clusterClient.getPartitions().stream().filter(n -> n.is(NodeFlag.UPSTREAM)).count();
+			Assertions.assertEquals(upstreams, keyReader.getQueues().size());
+			int count = 100;
+			for (int index = 0; index < count; index++) {
+				redisCommands.set("key:" + index, "value");
+			}
+			Assertions.assertEquals(count, pollKeys(keyReader).size());
+			// Refreshing an unchanged topology must not subscribe to nodes again
+			clusterClient.refreshPartitions();
+			Assertions.assertEquals(upstreams, keyReader.getQueues().size());
+			for (int index = 0; index < count; index++) {
+				redisCommands.set("key:" + index, "value");
+			}
+			Assertions.assertEquals(count, pollKeys(keyReader).size());
+		} finally {
+			keyReader.close();
+		}
+	}
+
+	private Set<String> pollKeys(KeyNotificationItemReader<String, String> keyReader) throws InterruptedException {
+		Set<String> keys = new HashSet<>();
+		KeyEvent<String> keyEvent;
+		while ((keyEvent = keyReader.poll(100, TimeUnit.MILLISECONDS)) != null) {
+			keys.add(keyEvent.getKey());
+		}
+		return keys;
+	}
+
 	@Test
 	void replicateDumpLive(TestInfo info) throws Exception {
 		enableKeyspaceNotifications();
@@ -865,6 +993,179 @@ abstract class BatchTests extends AbstractTargetTestBase {
 		Assertions.assertEquals(Collections.emptyList(), compare(info).mismatches());
 	}
 
+	@Test
+	void replicateDumpLiveSnapshot(TestInfo info) throws Exception {
+		enableKeyspaceNotifications();
+		generate(info, generator(300, DataType.HASH, DataType.STRING));
+		RedisItemReader<byte[], byte[], MemKeyValue<byte[], byte[]>> reader = dumpReader(info);
+		live(reader);
+		reader.setSnapshot(true);
+		RedisItemWriter<byte[], byte[], KeyValue<byte[], byte[]>> writer = RedisItemWriter.dump();
+		writer.setClient(targetRedisClient);
+		FlushingStepBuilder<MemKeyValue<byte[], byte[]>, KeyValue<byte[], byte[]>> step = flushingStep(info, reader,
+				writer);
+		GeneratorItemReader gen = generator(700, DataType.HASH, DataType.LIST, DataType.SET, DataType.STRING);
+		gen.setKeyRange(Range.from(200));
+		generateAsync(testInfo(info, "genasync"), gen);
+		run(info, step);
+		awaitUntilNoSubscribers();
+		Assertions.assertEquals(Collections.emptyList(), compare(info).mismatches());
+	}
+
+	@Test
+	void replicateStructLiveJournal(TestInfo info, @TempDir Path directory) throws Exception {
+		enableKeyspaceNotifications();
+		generate(info, generator(100, DataType.HASH, DataType.STRING));
+		// Keys notified before a restart but not replicated yet
+		try (KeyJournal journal = new KeyJournal(directory)) {
+			journal.open();
+			for (String key : redisCommands.keys("*")) {
+				journal.append(key.getBytes(StandardCharsets.UTF_8), null);
+			}
+		}
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		live(reader);
+		reader.setJournalDirectory(directory);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		FlushingStepBuilder<MemKeyValue<String, Object>, KeyValue<String, Object>> step = flushingStep(info, reader,
+				writer);
+		GeneratorItemReader gen = generator(100, DataType.LIST, DataType.SET, DataType.ZSET);
+		gen.setKeyRange(Range.from(200));
+		generateAsync(testInfo(info, "genasync"), gen);
+		run(info, step);
+		awaitUntilNoSubscribers();
+		Assertions.assertEquals(Collections.emptyList(), compare(info).mismatches());
+		try (KeyJournal journal = new KeyJournal(directory)) {
+			journal.open();
+			Assertions.assertEquals(journal.getPosition(), journal.getCommittedPosition());
+		}
+	}
+
+	@Test
+	void awaitAllFirstError() throws Exception {
+		Duration timeout = redisConnection.getTimeout();
+		redisCommands.set("string", "value");
+		List<RedisFuture<Long>> futures = new ArrayList<>();
+		futures.add(redisAsyncCommands.incr("counter"));
+		futures.add(redisAsyncCommands.incr("string"));
+		futures.add(redisAsyncCommands.lpush("string", "member"));
+		futures.add(redisAsyncCommands.incr("counter"));
+		ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+				() -> BatchUtils.awaitAll(timeout, futures));
+		Assertions.assertInstanceOf(RedisCommandExecutionException.class, exception.getCause());
+		Assertions.assertTrue(exception.getCause().getMessage().contains("not an integer"));
+		// All futures completed, including those following the failures
+		Assertions.assertTrue(futures.stream().allMatch(RedisFuture::isDone));
+		Assertions.assertEquals(Arrays.asList(3L, 4L),
+				BatchUtils.getAll(timeout, Arrays.asList(redisAsyncCommands.incr("counter"), null,
+						redisAsyncCommands.incr("counter"))));
+	}
+
+	@Test
+	void partitionBySlot() {
+		List<String> keys = IntStream.range(0, 100).mapToObj(i -> "key:" + i).collect(Collectors.toList());
+		Collection<List<String>> partitions = BatchUtils.partitionBySlot(redisAsyncCommands, StringCodec.UTF8, keys,
+				Function.identity());
+		Assertions.assertEquals(slotCount(keys), partitions.size());
+		Assertions.assertEquals(keys.size(), partitions.stream().mapToInt(List::size).sum());
+		for (List<String> partition : partitions) {
+			Assertions.assertEquals(1, partition.stream().map(SlotHash::getSlot).distinct().count());
+		}
+	}
+
+	@Test
+	void writeStructCoalesce() throws Exception {
+		int count = 100;
+		List<String> jsonKeys = new ArrayList<>();
+		List<String> tsKeys = new ArrayList<>();
+		List<KeyValue<String, Object>> items = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			redisCommands.sadd("string:" + index, "member");
+			items.add(keyValue("string:" + index, DataType.STRING, "value" + index));
+			jsonKeys.add("json:" + index);
+			items.add(keyValue("json:" + index, DataType.JSON, "{\"id\":" + index + "}"));
+			tsKeys.add("ts:" + index);
+			items.add(keyValue("ts:" + index, DataType.TIMESERIES,
+					Arrays.asList(Sample.of(1000, 1), Sample.of(2000, 2), Sample.of(3000, 3))));
+		}
+		List<RedisFuture<Object>> futures = new KeyValueWrite<>(StringCodec.UTF8).execute(redisAsyncCommands, items);
+		BatchUtils.awaitAll(redisConnection.getTimeout(), futures);
+		// UNLINK, MSET, JSON.MSET and TS.MADD per slot, TS.ADD for the first sample of each key
+		Assertions.assertEquals(2 + slotCount(jsonKeys) + slotCount(tsKeys) + count, futures.size());
+		for (int index = 0; index < count; index++) {
+			Assertions.assertEquals("value" + index, redisCommands.get("string:" + index));
+			Assertions.assertEquals("[{\"id\":" + index + "}]", redisCommands.jsonGet("json:" + index, "$"));
+			Assertions.assertEquals(3, redisCommands
+					.tsRange("ts:" + index, TimeRange.unbounded(), RangeOptions.builder().build()).size());
+		}
+	}
+
+	@Test
+	void writeStructJsonSet() throws Exception {
+		int count = 10;
+		List<KeyValue<String, Object>> items = new ArrayList<>();
+		for (int index = 0; index < count; index++) {
+			items.add(keyValue("json:" + index, DataType.JSON, "{\"id\":" + index + "}"));
+		}
+		KeyValueWrite<String, String> write = new KeyValueWrite<>(StringCodec.UTF8);
+		write.setJsonMultiSet(false);
+		List<RedisFuture<Object>> futures = write.execute(redisAsyncCommands, items);
+		BatchUtils.awaitAll(redisConnection.getTimeout(), futures);
+		// UNLINK then one JSON.SET per document
+		Assertions.assertEquals(1 + count, futures.size());
+		for (int index = 0; index < count; index++) {
+			Assertions.assertEquals("[{\"id\":" + index + "}]", redisCommands.jsonGet("json:" + index, "$"));
+		}
+	}
+
+	private long slotCount(List<String> keys) {
+		if (redisClient instanceof RedisClusterClient) {
+			return keys.stream().map(SlotHash::getSlot).distinct().count();
+		}
+		return 1;
+	}
+
+	private static KeyValue<String, Object> keyValue(String key, DataType type, Object value) {
+		KeyValue<String, Object> keyValue = new KeyValue<>();
+		keyValue.setKey(key);
+		keyValue.setType(type.getString());
+		keyValue.setValue(value);
+		return keyValue;
+	}
+
+	@Test
+	void writeKeyPartitionsOrder() throws Exception {
+		int keys = 10;
+		int chunks = 10;
+		int chunkSize = 1000;
+		Rpush<String, String, String[]> rpush = new Rpush<>(t -> t[0], t -> Collections.singletonList(t[1]));
+		RedisItemWriter<String, String, String[]> writer = RedisItemWriter.operation(rpush);
+		writer.setClient(redisClient);
+		writer.setKeyFunction(t -> t[0]);
+		writer.setKeyPartitions(4);
+		writer.open(new ExecutionContext());
+		try {
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				List<String[]> items = new ArrayList<>();
+				for (int index = 0; index < chunkSize; index++) {
+					int sequence = chunk * chunkSize + index;
+					items.add(new String[] { "list:" + sequence % keys, String.valueOf(sequence) });
+				}
+				writer.write(new Chunk<>(items));
+			}
+		} finally {
+			writer.close();
+		}
+		for (int key = 0; key < keys; key++) {
+			List<String> values = redisCommands.lrange("list:" + key, 0, -1);
+			Assertions.assertEquals(chunks * chunkSize / keys, values.size());
+			for (int index = 0; index < values.size(); index++) {
+				Assertions.assertEquals(key + index * keys, Integer.parseInt(values.get(index)));
+			}
+		}
+	}
+
 	@Test
 	void replicateSetLiveOnly(TestInfo info) throws Exception {
 		enableKeyspaceNotifications();
@@ -886,6 +1187,84 @@ abstract class BatchTests extends AbstractTargetTestBase {
 		assertEquals(redisCommands.smembers(key), targetRedisCommands.smembers(key));
 	}
 
+	@Test
+	void replicateStructLiveIncremental(TestInfo info) throws Exception {
+		enableKeyspaceNotifications();
+		String listKey = "mylist";
+		String streamKey = "mystream";
+		redisCommands.rpush(listKey, "1", "2", "3");
+		redisCommands.xadd(streamKey, "field", "0");
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		live(reader);
+		reader.setIncremental(true);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		FlushingStepBuilder<MemKeyValue<String, Object>, KeyValue<String, Object>> step = flushingStep(info, reader,
+				writer);
+		Executors.newSingleThreadExecutor().execute(() -> {
+			awaitUntilSubscribers();
+			for (int index = 4; index <= 100; index++) {
+				redisCommands.rpush(listKey, String.valueOf(index));
+				redisCommands.xadd(streamKey, "field", String.valueOf(index));
+				if (index % 25 == 0) {
+					redisCommands.lpop(listKey);
+				}
+			}
+		});
+		run(info, step);
+		awaitUntilNoSubscribers();
+		assertEquals(redisCommands.lrange(listKey, 0, -1), targetRedisCommands.lrange(listKey, 0, -1));
+		io.lettuce.core.Range<String> range = io.lettuce.core.Range.create("-", "+");
+		assertEquals(redisCommands.xrange(streamKey, range), targetRedisCommands.xrange(streamKey, range));
+	}
+
+	@Test
+	void replicateStructLiveIncrementalSkip(TestInfo info) throws Exception {
+		enableKeyspaceNotifications();
+		String listKey = "mylist";
+		redisCommands.rpush(listKey, "1", "2", "3");
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		live(reader);
+		reader.setIncremental(true);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		// Fails every attempt to write the first appended entries so that they are
+		// skipped
+		AtomicReference<KeyValue<String, Object>> skipped = new AtomicReference<>();
+		ItemWriter<KeyValue<String, Object>> failingWriter = items -> {
+			for (KeyValue<String, Object> item : items) {
+				if (item.isAppend() && (skipped.compareAndSet(null, item) || skipped.get() == item)) {
+					throw new IllegalStateException("Simulated write failure");
+				}
+			}
+			writer.write(items);
+		};
+		FaultTolerantStepBuilder<MemKeyValue<String, Object>, KeyValue<String, Object>> step = faultTolerant(
+				flushingStep(info, reader, failingWriter));
+		step.skip(IllegalStateException.class);
+		step.skipLimit(10);
+		step.stream(writer);
+		Executors.newSingleThreadExecutor().execute(() -> {
+			awaitUntilSubscribers();
+			try {
+				redisCommands.rpush(listKey, "4");
+				awaitUntil(() -> targetRedisCommands.llen(listKey) == 4);
+				redisCommands.rpush(listKey, "5");
+				awaitUntil(() -> skipped.get() != null);
+			} catch (TimeoutException | InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			for (int index = 6; index <= 100; index++) {
+				redisCommands.rpush(listKey, String.valueOf(index));
+			}
+		});
+		run(job(info).start(step.build()).build());
+		awaitUntilNoSubscribers();
+		Assertions.assertNotNull(skipped.get());
+		// The skipped entries are only written again if the next read is a full read
+		assertEquals(redisCommands.lrange(listKey, 0, -1), targetRedisCommands.lrange(listKey, 0, -1));
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	void compareBinaryKeyValue(TestInfo info) throws Exception {
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -20,16 +21,24 @@ import java.util.stream.IntStream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
 import org.springframework.batch.core.job.builder.FlowBuilder;
 import org.springframework.batch.core.job.flow.support.SimpleFlow;
 import org.springframework.batch.core.step.tasklet.TaskletStep;
+import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.support.ListItemReader;
 import org.springframework.batch.item.support.ListItemWriter;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.util.unit.DataSize;
 
+import com.redis.lettucemod.api.StatefulRedisModulesConnection;
+import com.redis.lettucemod.util.RedisModulesUtils;
 import com.redis.spring.batch.Range;
+import com.redis.spring.batch.step.FlushingStepBuilder;
 import com.redis.spring.batch.item.redis.RedisItemReader;
 import com.redis.spring.batch.item.redis.RedisItemWriter;
 import com.redis.spring.batch.item.redis.common.BatchUtils;
@@ -55,11 +64,13 @@ import com.redis.testcontainers.RedisStackContainer;
 
 import io.lettuce.core.Consumer;
 import io.lettuce.core.KeyScanArgs;
+import io.lettuce.core.KillArgs;
 import io.lettuce.core.Range.Boundary;
 import io.lettuce.core.ScanIterator;
 import io.lettuce.core.ScoredValue;
 import io.lettuce.core.StreamMessage;
 import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.StringCodec;
 
 class StackBatchTests extends BatchTests {
 
@@ -95,6 +106,106 @@ class StackBatchTests extends BatchTests {
 		reader.close();
 	}
 
+	@Test
+	void replicateStructLiveReplication(TestInfo info) throws Exception {
+		generate(info, generator(100, DataType.HASH, DataType.STRING));
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		live(reader);
+		reader.setReplicationUri(redisURI);
+		reader.setSnapshot(true);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		FlushingStepBuilder<MemKeyValue<String, Object>, KeyValue<String, Object>> step = flushingStep(info, reader,
+				writer);
+		GeneratorItemReader gen = generator(300, DataType.HASH, DataType.LIST, DataType.SET, DataType.STREAM,
+				DataType.STRING, DataType.ZSET);
+		gen.setKeyRange(Range.from(50));
+		Executors.newSingleThreadExecutor().execute(() -> {
+			try {
+				awaitUntil(() -> redisCommands.info("replication").contains("connected_slaves:1"));
+				generate(testInfo(info, "genasync"), gen);
+				redisCommands.del("gen:1", "gen:2");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Exception e) {
+				throw new ItemStreamException("Could not run data gen", e);
+			}
+		});
+		run(info, step);
+		Assertions.assertEquals(Collections.emptyList(), compare(info).mismatches());
+	}
+
+	@Test
+	void replicateStructLiveReplicationFullResync(TestInfo info) throws Exception {
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		live(reader);
+		reader.setReplicationUri(redisURI);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		FlushingStepBuilder<MemKeyValue<String, Object>, KeyValue<String, Object>> step = flushingStep(info, reader,
+				writer);
+		String backlogSizeConfig = "repl-backlog-size";
+		String backlogSize = redisCommands.configGet(backlogSizeConfig).get(backlogSizeConfig);
+		Executors.newSingleThreadExecutor().execute(() -> {
+			try {
+				awaitUntil(() -> redisCommands.info("replication").contains("connected_slaves:1"));
+				redisCommands.configSet(backlogSizeConfig, "16384");
+				redisCommands.clientKill(KillArgs.Builder.typeSlave());
+				// Changes made before the reader reconnects overflow the backlog
+				char[] value = new char[1000];
+				Arrays.fill(value, 'x');
+				for (int index = 0; index < 100; index++) {
+					redisCommands.set("resync:" + index, new String(value));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Exception e) {
+				throw new ItemStreamException("Could not disconnect replica", e);
+			}
+		});
+		try {
+			run(info, step);
+		} finally {
+			redisCommands.configSet(backlogSizeConfig, backlogSize);
+		}
+		Assertions.assertEquals(Collections.emptyList(), compare(info).mismatches());
+	}
+
+	@Test
+	void replicateStructLiveAllDatabases(TestInfo info) throws Exception {
+		enableKeyspaceNotifications();
+		int count = 100;
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		live(reader);
+		reader.setDatabase(RedisItemReader.ALL_DATABASES);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		FlushingStepBuilder<MemKeyValue<String, Object>, KeyValue<String, Object>> step = flushingStep(info, reader,
+				writer);
+		Executors.newSingleThreadExecutor().execute(() -> {
+			awaitUntilSubscribers();
+			for (int database = 0; database < 2; database++) {
+				try (StatefulRedisModulesConnection<String, String> connection = RedisModulesUtils
+						.connection(redisClient)) {
+					connection.sync().select(database);
+					for (int index = 0; index < count; index++) {
+						connection.sync().set("key:" + index, "value:" + database + ":" + index);
+					}
+				}
+			}
+		});
+		run(info, step);
+		for (int database = 0; database < 2; database++) {
+			try (StatefulRedisModulesConnection<String, String> connection = RedisModulesUtils
+					.connection(targetRedisClient)) {
+				connection.sync().select(database);
+				for (int index = 0; index < count; index++) {
+					assertEquals("value:" + database + ":" + index, connection.sync().get("key:" + index));
+				}
+			}
+		}
+	}
+
 	@Test
 	void replicateHLL(TestInfo info) throws Exception {
 		String key1 = "hll:1";
@@ -330,6 +441,60 @@ class StackBatchTests extends BatchTests {
 		replicate(info, reader, writer);
 	}
 
+	@Test
+	void replicateStructScript(TestInfo info) throws Exception {
+		GeneratorItemReader gen = generator(100);
+		generate(info, gen);
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.structScript();
+		writer.setClient(targetRedisClient);
+		replicate(info, reader, writer);
+	}
+
+	@Test
+	void writeStructScriptRollback(TestInfo info) throws Exception {
+		String key = "stream:rollback";
+		redisCommands.set(key, "value");
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter
+				.structScript(StringCodec.UTF8, WriteMode.OVERWRITE);
+		writer.setClient(redisClient);
+		KeyValue<String, Object> item = new KeyValue<>();
+		item.setKey(key);
+		item.setType(DataType.STREAM.getString());
+		// XADD rejects ID 0-0 once the key was deleted
+		item.setValue(Arrays.asList(new StreamMessage<>(key, "0-0", Map.of("field", "value"))));
+		writer.open(new ExecutionContext());
+		try {
+			Assertions.assertThrows(Exception.class, () -> writer.write(new Chunk<>(Arrays.asList(item))));
+		} finally {
+			writer.close();
+		}
+		Assertions.assertEquals("value", redisCommands.get(key));
+	}
+
+	@Test
+	void replicateStructFused(TestInfo info) throws Exception {
+		int count = 100;
+		GeneratorItemReader gen = generator(count);
+		generate(info, gen);
+		RedisItemReader<String, String, MemKeyValue<String, Object>> reader = structReader(info);
+		reader.setThreads(4);
+		RedisItemWriter<String, String, KeyValue<String, Object>> writer = RedisItemWriter.struct();
+		writer.setClient(targetRedisClient);
+		JobExecution execution = run(job(info).start(reader.fusedStep(writer)).build());
+		Assertions.assertEquals(BatchStatus.COMPLETED, execution.getStatus());
+		// Keys are read and their values written by one step: no internal job
+		// fills a reader queue for an outer step to poll
+		Assertions.assertNull(reader.getJobExecution());
+		Assertions.assertNull(reader.getQueue());
+		Assertions.assertEquals(1, execution.getStepExecutions().size());
+		StepExecution stepExecution = execution.getStepExecutions().iterator().next();
+		Assertions.assertEquals(count, stepExecution.getReadCount());
+		Assertions.assertEquals(stepExecution.getReadCount(), stepExecution.getWriteCount());
+		KeyspaceComparison<String> comparison = compare(testInfo(info, "fused"));
+		Assertions.assertEquals(Collections.emptyList(), comparison.mismatches());
+	}
+
 	private static FlowBuilder<SimpleFlow> flow(String name) {
 		return new FlowBuilder<>(name);
 	}
@@ -0,0 +1,129 @@
+package com.redis.spring.batch.test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.redis.spring.batch.item.redis.reader.KeyEvent;
+import com.redis.spring.batch.item.redis.reader.UniqueKeyQueue;
+import com.redis.spring.batch.item.redis.reader.UniqueKeyQueue.Result;
+
+class UniqueKeyQueueTests {
+
+	@Test
+	void dedupe() {
+		UniqueKeyQueue<byte[]> queue = new UniqueKeyQueue<>(10);
+		Assertions.assertEquals(Result.ADDED, queue.tryOffer(bytes("key1")));
+		Assertions.assertEquals(Result.DUPLICATE, queue.tryOffer(bytes("key1")));
+		Assertions.assertEquals(Result.ADDED, queue.tryOffer(bytes("key2")));
+		Assertions.assertEquals(2, queue.size());
+		Assertions.assertArrayEquals(bytes("key1"), queue.poll());
+		Assertions.assertEquals(Result.ADDED, queue.tryOffer(bytes("key1")));
+		Assertions.assertArrayEquals(bytes("key2"), queue.poll());
+		Assertions.assertArrayEquals(bytes("key1"), queue.poll());
+		Assertions.assertNull(queue.poll());
+	}
+
+	@Test
+	void full() {
+		UniqueKeyQueue<String> queue = new UniqueKeyQueue<>(3);
+		for (int index = 0; index < 3; index++) {
+			Assertions.assertEquals(Result.ADDED, queue.tryOffer("key" + index));
+		}
+		Assertions.assertEquals(Result.FULL, queue.tryOffer("key3"));
+		Assertions.assertEquals(Result.DUPLICATE, queue.tryOffer("key0"));
+		Assertions.assertEquals(0, queue.remainingCapacity());
+		List<String> keys = new ArrayList<>();
+		Assertions.assertEquals(3, queue.drainTo(keys));
+		Assertions.assertEquals(List.of("key0", "key1", "key2"), keys);
+	}
+
+	@Test
+	void events() throws InterruptedException {
+		UniqueKeyQueue<String> queue = new UniqueKeyQueue<>(10);
+		Assertions.assertEquals(Result.ADDED, queue.tryOffer("key1", "set"));
+		Assertions.assertEquals(Result.ADDED, queue.tryOffer("key2", "hset"));
+		Assertions.assertEquals(Result.DUPLICATE, queue.tryOffer("key1", "del"));
+		KeyEvent<String> event = queue.pollEvent(10, TimeUnit.MILLISECONDS);
+		Assertions.assertEquals("key1", event.getKey());
+		Assertions.assertEquals("del", event.getEvent());
+		event = queue.pollEvent(10, TimeUnit.MILLISECONDS);
+		Assertions.assertEquals("key2", event.getKey());
+		Assertions.assertEquals("hset", event.getEvent());
+		Assertions.assertNull(queue.pollEvent(10, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void offerTimeout() throws Exception {
+		UniqueKeyQueue<String> queue = new UniqueKeyQueue<>(1);
+		Assertions.assertEquals(Result.ADDED, queue.tryOffer("key1", "set", 10, TimeUnit.MILLISECONDS));
+		Assertions.assertEquals(Result.DUPLICATE, queue.tryOffer("key1", "del", 10, TimeUnit.MILLISECONDS));
+		Assertions.assertEquals(Result.FULL, queue.tryOffer("key2", "set", 10, TimeUnit.MILLISECONDS));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Result> result = executor.submit(() -> queue.tryOffer("key2", "set", 1, TimeUnit.SECONDS));
+		Assertions.assertEquals("del", queue.pollEvent(1, TimeUnit.SECONDS).getEvent());
+		Assertions.assertEquals(Result.ADDED, result.get());
+		Assertions.assertEquals("key2", queue.poll());
+		executor.shutdown();
+	}
+
+	@Test
+	void delay() throws InterruptedException {
+		UniqueKeyQueue<String> queue = new UniqueKeyQueue<>(10);
+		queue.setDelay(Duration.ofMillis(300));
+		queue.offer("key1");
+		Assertions.assertNull(queue.poll());
+		Assertions.assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+		Assertions.assertEquals(Result.DUPLICATE, queue.tryOffer("key1"));
+		Assertions.assertEquals("key1", queue.poll(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void concurrent() throws Exception {
+		UniqueKeyQueue<String> queue = new UniqueKeyQueue<>(100);
+		int keyCount = 1000;
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		Set<String> keys = ConcurrentHashMap.newKeySet();
+		try {
+			List<Future<?>> producers = new ArrayList<>();
+			for (int producer = 0; producer < 2; producer++) {
+				producers.add(executor.submit(() -> {
+					for (int index = 0; index < 10 * keyCount; index++) {
+						queue.put("key:" + index % keyCount);
+					}
+					return null;
+				}));
+			}
+			Future<?> consumer = executor.submit(() -> {
+				String key;
+				while ((key = queue.poll(500, TimeUnit.MILLISECONDS)) != null) {
+					keys.add(key);
+				}
+				return null;
+			});
+			for (Future<?> producer : producers) {
+				producer.get();
+			}
+			consumer.get();
+		} finally {
+			executor.shutdown();
+		}
+		Assertions.assertEquals(keyCount, keys.size());
+		Assertions.assertTrue(queue.isEmpty());
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+}